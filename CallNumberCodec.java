@@ -0,0 +1,95 @@
+/**
+ * Class CallNumberCodec to encode call numbers as primitive longs.
+ * A call number always has the form B|P-ddd-ddd-ddd, so the nine digits
+ * and the type letter fit in a single long.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public final class CallNumberCodec {
+    /**
+     * Value returned by encode for strings that are not valid call numbers.
+     */
+    public static final long INVALID = -1L;
+
+    // Length of a call number such as B-123-456-789
+    private static final int LENGTH = 13;
+    // Offset added to the digits of a periodical call number
+    private static final long PERIODICAL = 1_000_000_000L;
+
+    /**
+     * Private constructor, the class only has static methods.
+     */
+    private CallNumberCodec() {
+    }
+
+    /**
+     * Encodes a call number as a long.
+     * Books map to 0..999999999 and periodicals to 1000000000..1999999999.
+     * 
+     * @param c the call number to encode
+     * @return the encoded call number, or INVALID if c is not of the form B|P-ddd-ddd-ddd
+     */
+    public static long encode(String c) {
+        if (c == null || c.length() != LENGTH) {
+            return INVALID;
+        }
+        long code;
+        char type = c.charAt(0);
+        if (type == 'B') {
+            code = 0;
+        } else if (type == 'P') {
+            code = PERIODICAL;
+        } else {
+            return INVALID;
+        }
+        long digits = 0;
+        for (int i = 1; i < LENGTH; i++) {
+            char ch = c.charAt(i);
+            if (i % 4 == 1) {
+                if (ch != '-') {
+                    return INVALID;
+                }
+            } else if (ch >= '0' && ch <= '9') {
+                digits = digits * 10 + (ch - '0');
+            } else {
+                return INVALID;
+            }
+        }
+        return code + digits;
+    }
+
+    /**
+     * Decodes a long produced by encode back into its call number.
+     * 
+     * @param code the encoded call number
+     * @return the call number string
+     */
+    public static String decode(long code) {
+        if (code < 0 || code >= 2 * PERIODICAL) {
+            throw new IllegalArgumentException("Not an encoded call number: " + code);
+        }
+        char[] c = new char[LENGTH];
+        c[0] = code >= PERIODICAL ? 'P' : 'B';
+        long digits = code % PERIODICAL;
+        for (int i = LENGTH - 1; i > 0; i--) {
+            if (i % 4 == 1) {
+                c[i] = '-';
+            } else {
+                c[i] = (char) ('0' + digits % 10);
+                digits /= 10;
+            }
+        }
+        return new String(c);
+    }
+
+    /**
+     * Checks if a string is a valid call number.
+     * 
+     * @param c the string to check
+     * @return true if c is of the form B|P-ddd-ddd-ddd, false otherwise
+     */
+    public static boolean isValid(String c) {
+        return encode(c) != INVALID;
+    }
+}
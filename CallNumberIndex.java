@@ -0,0 +1,127 @@
+import java.util.HashMap;
+
+/**
+ * Class CallNumberIndex to map call numbers to int positions.
+ * Call numbers of the form B|P-ddd-ddd-ddd are stored as encoded longs in a
+ * LongIntMap; any other string falls back to a HashMap so it can still be found.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class CallNumberIndex {
+    /**
+     * Value returned when a call number is not in the index.
+     */
+    public static final int NO_VALUE = LongIntMap.NO_VALUE;
+
+    // Data members
+    private LongIntMap encoded;
+    private HashMap<String, Integer> other;
+
+    /**
+     * Constructor with an expected number of call numbers.
+     * 
+     * @param expected the number of call numbers the index should hold without growing
+     */
+    public CallNumberIndex(int expected) {
+        encoded = new LongIntMap(expected);
+        other = new HashMap<>();
+    }
+
+    /**
+     * Maps a call number to a position unless the call number is already indexed.
+     * 
+     * @param c the call number
+     * @param position the position to map it to
+     * @return true if the call number was added, false if it was already indexed
+     */
+    public boolean putIfAbsent(String c, int position) {
+        long code = CallNumberCodec.encode(c);
+        if (code != CallNumberCodec.INVALID) {
+            return encoded.putIfAbsent(code, position) == LongIntMap.NO_VALUE;
+        }
+        return other.putIfAbsent(c, position) == null;
+    }
+
+    /**
+     * Maps a call number to a position, replacing any previous position.
+     * 
+     * @param c the call number
+     * @param position the position to map it to
+     */
+    public void put(String c, int position) {
+        long code = CallNumberCodec.encode(c);
+        if (code != CallNumberCodec.INVALID) {
+            encoded.put(code, position);
+        } else {
+            other.put(c, position);
+        }
+    }
+
+    /**
+     * Returns the position of a call number.
+     * 
+     * @param c the call number
+     * @return the position of the call number, or NO_VALUE if it is not indexed
+     */
+    public int get(String c) {
+        long code = CallNumberCodec.encode(c);
+        if (code != CallNumberCodec.INVALID) {
+            return encoded.get(code);
+        }
+        Integer position = other.get(c);
+        return position == null ? NO_VALUE : position;
+    }
+
+    /**
+     * Checks if a call number is in the index.
+     * 
+     * @param c the call number
+     * @return true if the call number is indexed, false otherwise
+     */
+    public boolean contains(String c) {
+        return get(c) != NO_VALUE;
+    }
+
+    /**
+     * Removes a call number from the index.
+     * 
+     * @param c the call number
+     * @return the position the call number had, or NO_VALUE if it was not indexed
+     */
+    public int remove(String c) {
+        long code = CallNumberCodec.encode(c);
+        if (code != CallNumberCodec.INVALID) {
+            return encoded.remove(code);
+        }
+        Integer position = other.remove(c);
+        return position == null ? NO_VALUE : position;
+    }
+
+    /**
+     * Returns the number of call numbers in the index.
+     * 
+     * @return the number of call numbers
+     */
+    public int size() {
+        return encoded.size() + other.size();
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the index. Call numbers
+     * in the fallback map are counted at a rough 64 bytes each.
+     * 
+     * @return the approximate size of the index in bytes
+     */
+    public long memoryBytes() {
+        return encoded.memoryBytes() + 64L * other.size();
+    }
+
+    /**
+     * Removes every call number from the index.
+     */
+    public void clear() {
+        encoded.clear();
+        other.clear();
+    }
+}
@@ -1,11 +1,13 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class Catalog to model the entity Catalog.
@@ -16,11 +18,62 @@ import java.util.Arrays;
  * @since 2024-6-1 (date of last revision)
  */
 public class Catalog {
+    // Initial capacities used when no size hint is given
+    private static final int DEFAULT_CAPACITY = 50;
+    private static final int DEFAULT_RCAPACITY = 25;
+
+    /**
+     * Column headings printed by toString.
+     */
+    static final String HEADER = String.format("%-12s\t%-35s\t%-25s\t%-5s\t%-7s\t%-15s\t%-10s", "Call Number", "Title", "Publisher", "Year", "#Copies", "Author/Month", "ISBN/Issue");
+
     // Data members
     private Title[] titles;
     private RTitle[] restoredTitles;
     private int count;
     private int rcount;
+    // Slots in use, including the null slots left behind by removeTitle
+    private int size;
+    // Index from call number to the slot of its first title
+    private CallNumberIndex callIndex;
+    // Number of titles added with each call number that was already indexed
+    private CallNumberIndex duplicates;
+    // Index from title name to the slots of its titles
+    private TitleIndex titleIndex;
+    // Index from publication year to the slots of its titles
+    private YearIndex yearIndex;
+    // Codes of the publishers and authors of the titles
+    private StringDictionary names;
+    // Index from publisher code to the slots of its titles
+    private CodeIndex publisherIndex;
+    // Index from author code to the slots of its books
+    private CodeIndex authorIndex;
+    // Index from the words of titles, publishers and authors to their slots
+    private TextIndex textIndex;
+    // Index from the trigrams of title names to the names, for fuzzy search
+    private TrigramIndex trigramIndex;
+    // True once textIndex and trigramIndex hold every title; they are only built by the first search
+    private volatile boolean textIndexed;
+    // Lock that lets one search at a time build textIndex and trigramIndex
+    private final Object textLock = new Object();
+    // Index from normalized ISBN to the slots of its books
+    private IsbnIndex isbnIndex;
+    // Issues of each periodical title in publication order
+    private SeriesIndex seriesIndex;
+    // Registry from call number to the position of its restored title
+    private CallNumberIndex restoredIndex;
+    // Journal that persists each change, or null if changes are not journaled
+    private CatalogJournal journal;
+    // Latest view handed out by snapshot, or null if the catalog changed since
+    private final AtomicReference<CatalogView> published = new AtomicReference<>();
+    // True while a view may share the titles array
+    private boolean shared;
+    // Number of times the slots were renumbered, which invalidates open cursors
+    private int epoch;
+    // Loader of the last readTitles, or null if no file was read yet
+    private volatile TitleLoader lastLoad;
+    // Writer of the last saveTitles, or null if the catalog was not saved yet
+    private volatile TitleWriter lastSave;
 
     // Default constructor
     /**
@@ -28,107 +81,321 @@ public class Catalog {
      * and sets the count and rcount to 0.
      */
     public Catalog() {
-        titles = new Title[50];
-        restoredTitles = new RTitle[25];
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Constructor with a capacity hint
+    /**
+     * Constructor that pre-sizes the titles array for a bulk load.
+     * The catalog still grows past the hint if more titles are added.
+     * 
+     * @param capacity the expected number of titles
+     */
+    public Catalog(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        }
+        titles = new Title[Math.max(capacity, 1)];
+        restoredTitles = new RTitle[DEFAULT_RCAPACITY];
         count = 0;
         rcount = 0;
+        size = 0;
+        callIndex = new CallNumberIndex(capacity);
+        duplicates = new CallNumberIndex(0);
+        titleIndex = new TitleIndex();
+        yearIndex = new YearIndex();
+        names = new StringDictionary();
+        publisherIndex = new CodeIndex();
+        authorIndex = new CodeIndex();
+        textIndex = new TextIndex();
+        trigramIndex = new TrigramIndex();
+        isbnIndex = new IsbnIndex();
+        seriesIndex = new SeriesIndex();
+        restoredIndex = new CallNumberIndex(DEFAULT_RCAPACITY);
+    }
+
+    // Makes sure the titles array can hold a given number of titles
+    /**
+     * Grows the titles array so it can hold at least the given number of titles.
+     * The slots of removed titles are reclaimed first, and the array only
+     * grows if they are not enough. The array at least doubles when it grows,
+     * so appends are amortized O(1).
+     * 
+     * @param capacity the minimum number of titles the array must hold
+     */
+    public void ensureCapacity(int capacity) {
+        // Slots needed if the removed slots stay where they are
+        int required = size + Math.max(capacity - count, 0);
+        if (required > titles.length && size > count) {
+            compact();
+            required = Math.max(capacity, size);
+        }
+        if (required > titles.length) {
+            titles = Arrays.copyOf(titles, newLength(titles.length, required));
+            // Views keep the old array
+            shared = false;
+        }
+    }
+
+    // Computes the grown length of a backing array
+    /**
+     * Returns the length to grow an array to, doubling the current length
+     * unless the required length is larger.
+     * 
+     * @param current the current length of the array
+     * @param required the minimum length needed
+     * @return the new length of the array
+     */
+    private static int newLength(int current, int required) {
+        if (required < 0) {
+            throw new OutOfMemoryError("Catalog is too large");
+        }
+        int doubled = current << 1;
+        if (doubled < 0 || doubled > Integer.MAX_VALUE - 8) {
+            doubled = Integer.MAX_VALUE - 8;
+        }
+        return Math.max(doubled, required);
     }
 
     // readTitles method
     /**
      * Reads titles from a file and stores them in the titles array.
      * If a title has a restoration date, it is stored in the restoredTitles array instead.
+     * Lines that are not valid title records are reported and skipped.
      * 
      * @param filename the name of the file to read titles from
      */
     public void readTitles(String filename) {
+        TitleLoader loader = new TitleLoader(this);
         try {
-            File file = new File(filename);
-            Scanner readFile = new Scanner(file);
-
-            while (readFile.hasNextLine()) {
-                String s = readFile.nextLine();
-                String[] t = s.split("\\|");
-                if (t[0].charAt(0) == 'P') {
-                    try {
-                        Periodical p = new Periodical(t[0], t[1], t[2], Integer.valueOf(t[3]), Integer.valueOf(t[4]), Integer.valueOf(t[5]), Integer.valueOf(t[6]));
-                        addTitle(p);
-                    } catch (Exception e) {
-                        Periodical p = new Periodical(t[0], t[1], t[2], Integer.valueOf(t[3]), Integer.valueOf(t[4]), changeMonth(t[5]), Integer.valueOf(t[6]));
-                        addTitle(p);
-                    }
-                } else {
-                    Book b = new Book(t[0], t[1], t[2], Integer.valueOf(t[3]), Integer.valueOf(t[4]), t[5], t[6]);
-                    addTitle(b);
-                }
+            loader.load(filename);
+        } catch (NoSuchFileException e) {
+            System.out.println("File not found: " + filename);
+        } catch (IOException e) {
+            System.out.println("Cannot read the " + filename);
+        } finally {
+            lastLoad = loader;
+        }
+    }
 
-                if (t.length > 7) {
-                    LocalDate restorationDate = LocalDate.parse(t[7]);
-                    RTitle rt = new RTitle(titles[count - 1], restorationDate);
-                    addRestoredTitle(rt);
-                    titles[count - 1] = null;
-                    count--;
-                }
-            }
-            readFile.close();
-        } catch (FileNotFoundException e) {
+    // readTitles method using every core
+    /**
+     * Reads titles from a file like readTitles, but parses large files in
+     * parallel chunks. The titles end up in the same order as with readTitles.
+     * 
+     * @param filename the name of the file to read titles from
+     */
+    public void readTitlesParallel(String filename) {
+        TitleLoader loader = new TitleLoader(this);
+        try {
+            loader.loadParallel(filename);
+        } catch (NoSuchFileException e) {
             System.out.println("File not found: " + filename);
+        } catch (IOException e) {
+            System.out.println("Cannot read the " + filename);
+        } finally {
+            lastLoad = loader;
         }
     }
 
+    // Statistics of the last load
+    /**
+     * Returns the loader of the last readTitles or readTitlesParallel, which
+     * holds the number of lines read, the invalid lines and the lines per second.
+     * 
+     * @return the loader of the last load, or null if no file was read yet
+     */
+    public TitleLoader getLastLoadStats() {
+        return lastLoad;
+    }
+
     // Change the month into an integer type
     /**
      * Converts a month from a string to its corresponding integer value.
      * 
      * @param m the name of the month
-     * @return the integer value of the month
+     * @return the integer value of the month, or 0 if m is not a month
      */
     public int changeMonth(String m) {
-        String[] months = {"January", "February", "March", "April", "May", "June", "July", "August", "September", "October", "November", "December"};
-        for (int i = 0; i < 12; i++) {
-            if (m.equals(months[i])) {
-                return i + 1;
-            }
-        }
-        return 0;
+        return MonthCodec.decode(m);
     }
 
     // saveTitles method
     /**
      * Saves the titles and restored titles to a file.
+     * The file is replaced in one step, so a failed save leaves the old file as it was.
      * 
      * @param filename the name of the file to save the titles to
      */
     public void saveTitles(String filename) {
+        TitleWriter writer = new TitleWriter(this);
         try {
-            File file = new File(filename);
-            PrintWriter writeFile = new PrintWriter(file);
-            List<String> restoredTitlesList = new ArrayList<>();
-
-            // 先处理恢复的标题，移除并添加到恢复列表中
-            for (int i = 0; i < count; i++) {
-                boolean isRestored = false;
-                for (int j = 0; j < rcount; j++) {
-                    if (restoredTitles[j].getTitle().equals(titles[i])) {
-                        restoredTitlesList.add(restoredTitles[j].simpleToString());
-                        isRestored = true;
-                        break;
-                    }
-                }
-                if (!isRestored) {
-                    writeFile.println(titles[i].simpleToString());
-                }
+            writer.save(filename);
+        } catch (IOException e) {
+            System.out.println("Cannot write to the " + filename);
+        } finally {
+            lastSave = writer;
+        }
+    }
+
+    // Statistics of the last save
+    /**
+     * Returns the writer of the last saveTitles, which holds the number of
+     * records and bytes written and the records and bytes per second.
+     * 
+     * @return the writer of the last save, or null if the catalog was not saved yet
+     */
+    public TitleWriter getLastSaveStats() {
+        return lastSave;
+    }
+
+    // Saves the catalog in the binary snapshot format
+    /**
+     * Saves the titles and restored titles to a binary snapshot file,
+     * which loads much faster than the text format. Unlike the text format,
+     * a restored title that is still in the catalog is saved as both.
+     * 
+     * @param filename the name of the snapshot file
+     */
+    public void saveSnapshot(String filename) {
+        try (SnapshotWriter writer = new SnapshotWriter(filename)) {
+            exportState(writer);
+            writer.commit();
+        } catch (IOException e) {
+            System.out.println("Cannot write to the " + filename);
+        }
+    }
+
+    // Reads the catalog from a binary snapshot
+    /**
+     * Reads titles and restored titles from a binary snapshot file.
+     * 
+     * @param filename the name of the snapshot file
+     */
+    public void loadSnapshot(String filename) {
+        try {
+            new SnapshotReader(filename).load(this);
+        } catch (NoSuchFileException e) {
+            System.out.println("File not found: " + filename);
+        } catch (IOException e) {
+            System.out.println("Cannot read the " + filename + ": " + e.getMessage());
+        }
+    }
+
+    // Opens the catalog from a snapshot and its journal
+    /**
+     * Loads the catalog from a snapshot and its journal, then logs every
+     * later change (addTitle, removeTitle, restore) to the journal, so the
+     * changes persist without rewriting the whole catalog.
+     * 
+     * @param filename the name of the snapshot file; it does not need to exist yet
+     */
+    public void openJournal(String filename) {
+        openJournal(filename, CatalogJournal.DEFAULT_THRESHOLD);
+    }
+
+    // Opens the catalog from a snapshot and its journal, with a compaction threshold
+    /**
+     * Loads the catalog from a snapshot and its journal, then logs every later change.
+     * 
+     * @param filename the name of the snapshot file; it does not need to exist yet
+     * @param threshold the journal size in bytes after which a new snapshot is written
+     */
+    public void openJournal(String filename, long threshold) {
+        if (journal != null) {
+            closeJournal();
+        }
+        try {
+            CatalogJournal.recover(this, filename);
+            journal = new CatalogJournal(this, filename, threshold);
+        } catch (IOException e) {
+            System.out.println("Cannot open the journal of " + filename + ": " + e.getMessage());
+        }
+    }
+
+    // Closes the journal
+    /**
+     * Forces the journaled changes to disk and stops journaling.
+     */
+    public void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("Cannot close the journal: " + e.getMessage());
             }
+            journal = null;
+        }
+    }
 
-            // 保存恢复的标题
-            for (String restoredTitle : restoredTitlesList) {
-                writeFile.println(restoredTitle);
+    // Feeds every title to a sink
+    /**
+     * Passes every title to a sink. Titles that have not been restored come
+     * first, in catalog order, then every restored title.
+     * 
+     * @param sink the sink that receives the titles
+     * @return the number of titles passed to the sink
+     * @throws IOException if the sink fails
+     */
+    long export(TitleSink sink) throws IOException {
+        long n = 0;
+        for (int i = 0; i < size; i++) {
+            if (titles[i] != null && !findRestored(titles[i])) {
+                sink.add(titles[i]);
+                n++;
             }
+        }
+        for (int i = 0; i < rcount; i++) {
+            sink.add(restoredTitles[i]);
+            n++;
+        }
+        return n;
+    }
 
-            writeFile.close();
-        } catch (FileNotFoundException e) {
-            System.out.println("Cannot write to the " + filename);
+    // Feeds every title and every restored title to a sink
+    /**
+     * Passes every title to a sink in catalog order, restored or not, then
+     * every restored title. Loading both parts back gives the same catalog,
+     * which export cannot promise since it leaves out the titles that were
+     * restored.
+     * 
+     * @param sink the sink that receives the titles
+     * @return the number of titles passed to the sink
+     * @throws IOException if the sink fails
+     */
+    long exportState(TitleSink sink) throws IOException {
+        long n = 0;
+        for (int i = 0; i < size; i++) {
+            if (titles[i] != null) {
+                sink.add(titles[i]);
+                n++;
+            }
+        }
+        for (int i = 0; i < rcount; i++) {
+            sink.add(restoredTitles[i]);
+            n++;
+        }
+        return n;
+    }
+
+    // Copies the titles into a compact store
+    /**
+     * Copies the titles of the catalog, in catalog order, into a CompactTitleStore.
+     * Restored titles are not copied. The store is an export: the catalog
+     * keeps its own titles and indexes, so its memory does not shrink, and
+     * later changes to the catalog do not reach the store.
+     * 
+     * @return a new store holding the titles
+     */
+    public CompactTitleStore toCompactStore() {
+        CompactTitleStore store = new CompactTitleStore(count);
+        for (int i = 0; i < size; i++) {
+            if (titles[i] != null) {
+                store.add(titles[i]);
+            }
         }
+        store.trim();
+        return store;
     }
 
     // Remove a Title object to the array
@@ -139,17 +406,198 @@ public class Catalog {
      * @return true if the title was successfully removed, false otherwise
      */
     public boolean removeTitle(String c) {
-        for (int i = 0; i < count; i++) {
-            if (titles[i].getCallN().equals(c)) {
-                for (int j = i; j < count - 1; j++) {
-                    titles[j] = titles[j + 1];
+        if (!callIndex.contains(c)) {
+            return false;
+        }
+        // Log first, so a journal failure leaves the catalog unchanged
+        if (journal != null) {
+            journal.logRemove(c);
+        }
+        int slot = callIndex.remove(c);
+        unshare();
+        if (titles[slot] instanceof Periodical) {
+            seriesIndex.remove((Periodical) titles[slot]);
+        }
+        titles[slot] = null;
+        count--;
+        if (duplicates.contains(c)) {
+            reindexCallN(c);
+        }
+        // Squeeze out the null slots once they outnumber the titles
+        if (size - count > count && size > DEFAULT_CAPACITY) {
+            compact();
+        }
+        return true;
+    }
+
+    // Points a call number at the next title that shares it
+    /**
+     * Re-indexes a call number after its first title was removed,
+     * in case another title was added with the same call number.
+     * 
+     * @param c the call number to re-index
+     */
+    private void reindexCallN(String c) {
+        for (int i = 0; i < size; i++) {
+            if (titles[i] != null && titles[i].getCallN().equals(c)) {
+                callIndex.put(c, i);
+                int n = duplicates.remove(c);
+                if (n > 1) {
+                    duplicates.put(c, n - 1);
+                }
+                return;
+            }
+        }
+    }
+
+    // Adds a slot to the indexes
+    /**
+     * Adds the title stored in a slot to the indexes.
+     * Only the call number and series indexes are told about removals: the
+     * others skip empty slots until the next compaction rebuilds them.
+     * 
+     * @param slot the slot of the title to index
+     */
+    private void index(int slot) {
+        String c = titles[slot].getCallN();
+        if (!callIndex.putIfAbsent(c, slot)) {
+            int n = duplicates.get(c);
+            duplicates.put(c, n == CallNumberIndex.NO_VALUE ? 1 : n + 1);
+        }
+        titleIndex.add(titles[slot].getTitle(), slot);
+        yearIndex.add(titles[slot].getYear(), slot);
+        publisherIndex.add(names.code(titles[slot].getPublisher()), slot);
+        if (textIndexed) {
+            textIndex.add(titles[slot], slot);
+            trigramIndex.add(titles[slot].getTitle());
+        }
+        if (titles[slot] instanceof Book) {
+            isbnIndex.add(((Book) titles[slot]).getISBN(), slot);
+            authorIndex.add(names.code(((Book) titles[slot]).getAuthor()), slot);
+        } else if (titles[slot] instanceof Periodical) {
+            seriesIndex.add((Periodical) titles[slot]);
+        }
+    }
+
+    // Rebuilds the indexes from the titles array
+    /**
+     * Clears the indexes and adds every title back in slot order.
+     */
+    private void reindex() {
+        epoch++;
+        callIndex.clear();
+        duplicates.clear();
+        titleIndex.clear();
+        yearIndex.clear();
+        publisherIndex.clear();
+        authorIndex.clear();
+        textIndexed = false;
+        textIndex.clear();
+        trigramIndex.clear();
+        isbnIndex.clear();
+        seriesIndex.clear();
+        for (int i = 0; i < size; i++) {
+            if (titles[i] != null) {
+                index(i);
+            }
+        }
+    }
+
+    // Builds the text indexes the first time a search needs them
+    /**
+     * Adds every title to the text and trigram indexes unless they already
+     * hold them. Loading and sorting do not pay for these indexes until a
+     * text or fuzzy search uses them; reindex drops them again.
+     * A ConcurrentCatalog searches under the shared read lock, so two
+     * searches may get here together: one builds while the other waits.
+     */
+    private void indexText() {
+        if (textIndexed) {
+            return;
+        }
+        synchronized (textLock) {
+            if (!textIndexed) {
+                for (int i = 0; i < size; i++) {
+                    if (titles[i] != null) {
+                        textIndex.add(titles[i], i);
+                        trigramIndex.add(titles[i].getTitle());
+                    }
                 }
-                titles[count - 1] = null;
-                count--;
-                return true;
+                textIndexed = true;
+            }
+        }
+    }
+
+    // Removes the null slots left by removeTitle
+    /**
+     * Squeezes out the removed slots and rebuilds the indexes for the new slots.
+     */
+    private void compact() {
+        unshare();
+        squeeze();
+        reindex();
+    }
+
+    // Moves the titles over the null slots
+    /**
+     * Moves the titles down over the removed slots, keeping their order,
+     * without touching the indexes.
+     */
+    private void squeeze() {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (titles[i] != null) {
+                titles[n] = titles[i];
+                n++;
             }
         }
-        return false;
+        Arrays.fill(titles, n, size, null);
+        size = n;
+    }
+
+    // Copies the titles array if a view shares it
+    /**
+     * Called before a slot below size is overwritten: gives the catalog its
+     * own copy of the titles array when a view still shares it, and drops
+     * the published view.
+     */
+    private void unshare() {
+        published.set(null);
+        if (shared) {
+            titles = titles.clone();
+            shared = false;
+        }
+    }
+
+    // Returns an immutable snapshot of the catalog
+    /**
+     * Returns an immutable view of the catalog as it is now.
+     * The view shares the catalog's arrays, so taking it is O(1); the catalog
+     * copies its titles array the first time a later change would overwrite
+     * a slot the view can see. Until the catalog changes, every call returns
+     * the same view.
+     * 
+     * @return a view of the current titles and restored titles
+     */
+    public CatalogView snapshot() {
+        CatalogView view = published.get();
+        if (view == null) {
+            view = new CatalogView(titles, size, count, restoredTitles, rcount);
+            shared = true;
+            published.set(view);
+        }
+        return view;
+    }
+
+    // Returns the published view without creating one
+    /**
+     * Returns the view handed out by the last snapshot call, if the catalog
+     * has not changed since.
+     * 
+     * @return the current view, or null if a new one must be created
+     */
+    CatalogView publishedView() {
+        return published.get();
     }
 
     // Accessor for the count
@@ -167,15 +615,39 @@ public class Catalog {
      * Adds a Title object to the collection.
      * 
      * @param t the Title object to add
-     * @return true if the title was successfully added, false otherwise
+     * @return true once the title has been added
      */
     public boolean addTitle(Title t) {
-        if (count < titles.length) {
-            titles[count] = t;
-            count++;
-            return true;
+        if (size == titles.length) {
+            ensureCapacity(count + 1);
+        }
+        // Log first, so a journal failure leaves the catalog unchanged
+        if (journal != null) {
+            journal.logAdd(t);
+        }
+        published.set(null);
+        titles[size] = t;
+        index(size);
+        size++;
+        count++;
+        return true;
+    }
+
+    // Adds a collection of Title objects to the collection
+    /**
+     * Adds all the Title objects of a collection, growing the array at most once.
+     * 
+     * @param c the Title objects to add
+     * @return the number of titles added
+     */
+    public int addTitles(Collection<Title> c) {
+        ensureCapacity(count + c.size());
+        int added = 0;
+        for (Title t : c) {
+            addTitle(t);
+            added++;
         }
-        return false;
+        return added;
     }
 
     // Adds a restored Title object to the collection
@@ -183,15 +655,21 @@ public class Catalog {
      * Adds a restored Title object to the collection.
      * 
      * @param rt the restored Title object to add
-     * @return true if the restored title was successfully added, false otherwise
+     * @return true once the restored title has been added
      */
     public boolean addRestoredTitle(RTitle rt) {
-        if (rcount < restoredTitles.length) {
-            restoredTitles[rcount] = rt;
-            rcount++;
-            return true;
+        if (rcount == restoredTitles.length) {
+            restoredTitles = Arrays.copyOf(restoredTitles, newLength(rcount, rcount + 1));
+        }
+        // Log first, so a journal failure leaves the catalog unchanged
+        if (journal != null) {
+            journal.logRestore(rt);
         }
-        return false;
+        published.set(null);
+        restoredTitles[rcount] = rt;
+        rcount++;
+        restoredIndex.putIfAbsent(rt.getTitle().getCallN(), rcount - 1);
+        return true;
     }
 
     // Finds and returns a Title object with a call number
@@ -202,14 +680,65 @@ public class Catalog {
      * @return the Title object with the specified call number, or null if not found
      */
     public Title findCallN(String c) {
-        for (int i = 0; i < count; i++) {
-            if (titles[i].getCallN().equals(c)) {
-                return titles[i];
+        int slot = callIndex.get(c);
+        return slot == CallNumberIndex.NO_VALUE ? null : titles[slot];
+    }
+
+    // Finds and returns a Book object with an ISBN
+    /**
+     * Finds and returns a Book object with a specified ISBN. Hyphens and spaces
+     * are ignored, and an ISBN-10 finds the book under its ISBN-13 as well.
+     * 
+     * @param isbn the ISBN to search for
+     * @return the first Book object with the ISBN, or null if not found
+     */
+    public Book findISBN(String isbn) {
+        IntList slots = isbnIndex.get(isbn);
+        if (slots != null) {
+            for (int i = 0; i < slots.size(); i++) {
+                if (titles[slots.get(i)] != null) {
+                    return (Book) titles[slots.get(i)];
+                }
             }
         }
         return null;
     }
 
+    // Finds and returns the issues of a periodical
+    /**
+     * Finds and returns the issues of a periodical title, ordered by year,
+     * month and issue.
+     * 
+     * @param title the periodical title to search for
+     * @return an array of the issues, or null if not found
+     */
+    public Periodical[] findSeries(String title) {
+        Periodical[] p = seriesIndex.get(title).toArray(new Periodical[0]);
+        return p.length == 0 ? null : p;
+    }
+
+    // Finds the issue after another one
+    /**
+     * Finds the issue of the same periodical published right after another one.
+     * 
+     * @param p the issue to start from
+     * @return the next issue, or null if p is the latest
+     */
+    public Periodical nextIssue(Periodical p) {
+        return seriesIndex.next(p);
+    }
+
+    // Finds the issue before another one
+    /**
+     * Finds the issue of the same periodical published right before another one.
+     * 
+     * @param p the issue to start from
+     * @return the previous issue, or null if p is the earliest
+     */
+    public Periodical previousIssue(Periodical p) {
+        return seriesIndex.previous(p);
+    }
+
     // Finds and returns an array of Title objects with a specified title
     /**
      * Finds and returns an array of Title objects with a specified title.
@@ -218,22 +747,19 @@ public class Catalog {
      * @return an array of Title objects with the specified title, or null if not found
      */
     public Title[] findTitle(String title) {
-        Title[] t = new Title[count];
-        int n = 0;
-        for (int i = 0; i < count; i++) {
-            if (titles[i].getTitle().equals(title)) {
-                t[n] = titles[i];
-                n++;
-            }
-        }
-        if (n == 0) {
-            return null;
-        }
-        Title[] T = new Title[n];
-        for (int i = 0; i < n; i++) {
-            T[i] = t[i];
-        }
-        return T;
+        return orNull(queryTitle(title).toArray());
+    }
+
+    // Finds and returns an array of Title objects whose title starts with a prefix
+    /**
+     * Finds and returns an array of Title objects whose title starts with a prefix.
+     * The titles are ordered alphabetically, and by catalog order for equal titles.
+     * 
+     * @param prefix the beginning of the title to search for
+     * @return an array of the matching Title objects, or null if not found
+     */
+    public Title[] findTitlePrefix(String prefix) {
+        return orNull(queryTitlePrefix(prefix).toArray());
     }
 
     // Finds and returns an array of Title objects with a specified year
@@ -244,22 +770,311 @@ public class Catalog {
      * @return an array of Title objects with the specified year, or null if not found
      */
     public Title[] findYear(int year) {
-        Title[] t = new Title[count];
+        return orNull(queryYear(year).toArray());
+    }
+
+    // Finds and returns an array of Title objects published in a range of years
+    /**
+     * Finds and returns an array of Title objects published in a range of years.
+     * The titles are ordered by year, and by catalog order within a year.
+     * 
+     * @param from the first year of the range
+     * @param to the last year of the range, included
+     * @return an array of Title objects published in the range, or null if not found
+     */
+    public Title[] findYearRange(int from, int to) {
+        return orNull(queryYearRange(from, to).toArray());
+    }
+
+    // Returns null for an empty result, as the find methods always have
+    /**
+     * Returns an array of results, or null if it is empty.
+     * 
+     * @param t the results
+     * @return the results, or null if there are none
+     */
+    private static Title[] orNull(Title[] t) {
+        return t.length == 0 ? null : t;
+    }
+
+    // Queries the titles with a specified title
+    /**
+     * Returns a lazy cursor over the titles with a specified title, in catalog order.
+     * 
+     * @param title the title to search for
+     * @return a cursor over the matching titles
+     */
+    public TitleCursor queryTitle(String title) {
+        return cursor(listOf(titleIndex.get(title)));
+    }
+
+    // Queries the titles whose title starts with a prefix
+    /**
+     * Returns a lazy cursor over the titles whose title starts with a prefix,
+     * ordered alphabetically and by catalog order for equal titles.
+     * 
+     * @param prefix the beginning of the title to search for
+     * @return a cursor over the matching titles
+     */
+    public TitleCursor queryTitlePrefix(String prefix) {
+        return cursor(titleIndex.prefix(prefix));
+    }
+
+    // Queries the titles with a specified year
+    /**
+     * Returns a lazy cursor over the titles published in a year, in catalog order.
+     * 
+     * @param year the year to search for
+     * @return a cursor over the matching titles
+     */
+    public TitleCursor queryYear(int year) {
+        return cursor(listOf(yearIndex.get(year)));
+    }
+
+    // Queries the titles published in a range of years
+    /**
+     * Returns a lazy cursor over the titles published in a range of years,
+     * ordered by year and by catalog order within a year.
+     * 
+     * @param from the first year of the range
+     * @param to the last year of the range, included
+     * @return a cursor over the matching titles
+     */
+    public TitleCursor queryYearRange(int from, int to) {
+        return cursor(yearIndex.range(from, to));
+    }
+
+    // Searches the titles holding every word of a text
+    /**
+     * Searches the titles whose title, publisher and author together hold every
+     * word of a text. Words are compared without case. The titles where the
+     * words appear most often come first, then catalog order.
+     * 
+     * @param words the words to search for
+     * @return a cursor over the matching titles, best first
+     */
+    public TitleCursor searchAll(String words) {
+        indexText();
+        return cursor(listOf(rank(textIndex.all(words))));
+    }
+
+    // Searches the titles holding any word of a text
+    /**
+     * Searches the titles whose title, publisher or author holds any word of
+     * a text. Words are compared without case. The titles where the words
+     * appear most often come first, then catalog order.
+     * 
+     * @param words the words to search for
+     * @return a cursor over the matching titles, best first
+     */
+    public TitleCursor searchAny(String words) {
+        indexText();
+        return cursor(listOf(rank(textIndex.any(words))));
+    }
+
+    // Searches the titles whose title is close to a misspelled one
+    /**
+     * Searches the titles whose title is within a few edits of a given title,
+     * ignoring case. A quarter of the length of the title, and at least one
+     * edit, is allowed.
+     * 
+     * @param title the title to search for
+     * @param limit the largest number of titles to return
+     * @return a cursor over the closest titles, closest first
+     */
+    public TitleCursor searchFuzzy(String title, int limit) {
+        return searchFuzzy(title, Math.max(1, title.length() / 4), limit);
+    }
+
+    // Searches the titles whose title is close to a misspelled one
+    /**
+     * Searches the titles whose title is within an edit distance of a given
+     * title, ignoring case. The closest titles come first, then titles in
+     * alphabetical order, then catalog order.
+     * 
+     * @param title the title to search for
+     * @param maxDistance the largest number of edits allowed
+     * @param limit the largest number of titles to return
+     * @return a cursor over the closest titles, closest first
+     */
+    public TitleCursor searchFuzzy(String title, int maxDistance, int limit) {
+        indexText();
+        List<IntList> postings = new ArrayList<>();
+        for (String name : trigramIndex.search(title, maxDistance)) {
+            IntList slots = titleIndex.get(name);
+            if (slots != null) {
+                postings.add(slots);
+            }
+        }
+        return cursor(postings).limit(limit);
+    }
+
+    // Orders the matches of a text search by score
+    /**
+     * Orders the slots of a text search by decreasing score, then by slot,
+     * leaving out the slots of removed titles.
+     * 
+     * @param m the matches of the search
+     * @return the ordered slots
+     */
+    private IntList rank(TextIndex.Matches m) {
+        // Pack score and slot into one long so a single primitive sort orders both
+        long[] keys = new long[m.size];
         int n = 0;
-        for (int i = 0; i < count; i++) {
-            if (titles[i].getYear() == year) {
-                t[n] = titles[i];
-                n++;
+        for (int i = 0; i < m.size; i++) {
+            if (titles[m.slots[i]] != null) {
+                keys[n++] = ((long) (Integer.MAX_VALUE - m.scores[i]) << 32) | m.slots[i];
             }
         }
-        if (n == 0) {
+        Arrays.sort(keys, 0, n);
+        IntList slots = new IntList(n);
+        for (int i = 0; i < n; i++) {
+            slots.add((int) keys[i]);
+        }
+        return slots;
+    }
+
+    // Starts a query that combines several filters
+    /**
+     * Returns a new query over this catalog. Filters added to the query are
+     * combined with "and", and the query uses the catalog indexes to run.
+     * 
+     * @return an empty query that matches every title
+     */
+    public CatalogQuery query() {
+        return new CatalogQuery(this);
+    }
+
+    // Runs a query
+    /**
+     * Plans and runs a query against the titles of this catalog.
+     * 
+     * @param q the query
+     * @param plan where to describe the plan, or null
+     * @return a cursor over the matching titles
+     */
+    TitleCursor execute(CatalogQuery q, StringBuilder plan) {
+        return cursor(Collections.singletonList(q.execute(size, plan)));
+    }
+
+    // Returns the title in a slot, for a query
+    /**
+     * Returns the title in a slot.
+     * 
+     * @param slot the slot
+     * @return the title, or null if it was removed
+     */
+    Title slotTitle(int slot) {
+        return titles[slot];
+    }
+
+    // Returns the postings of a call number, for a query
+    /**
+     * Returns the postings of the title with a call number.
+     * 
+     * @param c the call number
+     * @return the postings, or null if titles sharing the call number keep the index from answering
+     */
+    Collection<IntList> callNPostings(String c) {
+        if (duplicates.contains(c)) {
             return null;
         }
-        Title[] T = new Title[n];
-        for (int i = 0; i < n; i++) {
-            T[i] = t[i];
+        int slot = callIndex.get(c);
+        if (slot == CallNumberIndex.NO_VALUE) {
+            return Collections.emptyList();
+        }
+        IntList slots = new IntList(1);
+        slots.add(slot);
+        return Collections.singletonList(slots);
+    }
+
+    // Returns the postings of a title, for a query
+    /**
+     * Returns the postings of the titles with a title.
+     * 
+     * @param title the title
+     * @return the postings
+     */
+    Collection<IntList> titlePostings(String title) {
+        return listOf(titleIndex.get(title));
+    }
+
+    // Returns the postings of a title prefix, for a query
+    /**
+     * Returns the postings of the titles whose title starts with a prefix.
+     * 
+     * @param prefix the beginning of the title
+     * @return the postings
+     */
+    Collection<IntList> titlePrefixPostings(String prefix) {
+        return titleIndex.prefix(prefix);
+    }
+
+    // Returns the postings of a publisher, for a query
+    /**
+     * Returns the postings of the titles from a publisher.
+     * 
+     * @param publisher the publisher
+     * @return the postings
+     */
+    Collection<IntList> publisherPostings(String publisher) {
+        return listOf(publisherIndex.get(names.find(publisher)));
+    }
+
+    // Returns the postings of an author, for a query
+    /**
+     * Returns the postings of the books by an author.
+     * 
+     * @param author the author
+     * @return the postings
+     */
+    Collection<IntList> authorPostings(String author) {
+        return listOf(authorIndex.get(names.find(author)));
+    }
+
+    // Returns the postings of a range of years, for a query
+    /**
+     * Returns the postings of the titles published in a range of years.
+     * 
+     * @param from the first year of the range
+     * @param to the last year of the range, included
+     * @return the postings
+     */
+    Collection<IntList> yearPostings(int from, int to) {
+        return yearIndex.range(from, to);
+    }
+
+    // Creates a cursor over posting lists
+    /**
+     * Returns a cursor over the slots of some posting lists.
+     * 
+     * @param postings the posting lists, in result order
+     * @return a cursor over the titles of the slots
+     */
+    TitleCursor cursor(Collection<IntList> postings) {
+        return new TitleCursor(this, postings, epoch);
+    }
+
+    // Returns a single posting list as a collection
+    private static Collection<IntList> listOf(IntList slots) {
+        return slots == null ? Collections.emptyList() : Collections.singletonList(slots);
+    }
+
+    // Reads a slot for a cursor
+    /**
+     * Returns the title in a slot of a posting list, for a cursor.
+     * 
+     * @param slots the posting list
+     * @param i the position in the posting list
+     * @param cursorEpoch the epoch the cursor was created in
+     * @return the title, or null if it was removed
+     * @throws ConcurrentModificationException if the slots were renumbered since the cursor was created
+     */
+    Title cursorTitle(IntList slots, int i, int cursorEpoch) {
+        if (cursorEpoch != epoch) {
+            throw new ConcurrentModificationException("Catalog was sorted or compacted");
         }
-        return T;
+        return titles[slots.get(i)];
     }
 
     // Sorts the array of Title objects in ascending order based on the year of publication using insertion sort
@@ -267,35 +1082,52 @@ public class Catalog {
      * Sorts the array of Title objects in ascending order based on the year of publication.
      */
     public void sort() {
+        unshare();
+        // The sort renumbers every slot anyway, so reindex only once
+        if (size > count) {
+            squeeze();
+        }
         Arrays.sort(titles, 0, count);
+        reindex();
     }
 
     // Finds a restored title
     /**
-     * Checks if a title is in the restoredTitles array.
+     * Checks if a title has been restored, matching it by call number.
      * 
      * @param title the Title object to check
-     * @return true if the title is in the restoredTitles array, false otherwise
+     * @return true if a title with the same call number is in the restoredTitles array, false otherwise
      */
     public boolean findRestored(Title title) {
-        for (int i = 0; i < rcount; i++) {
-            if (restoredTitles[i].getTitle().equals(title)) {
-                return true;
-            }
-        }
-        return false;
+        return restoredIndex.contains(title.getCallN());
+    }
+
+    // Finds a restored title by call number
+    /**
+     * Finds and returns the restored title with a specified call number.
+     * 
+     * @param c the call number to search for
+     * @return the RTitle object with the specified call number, or null if not found
+     */
+    public RTitle findRestoredCallN(String c) {
+        int position = restoredIndex.get(c);
+        return position == CallNumberIndex.NO_VALUE ? null : restoredTitles[position];
     }
 
     // View restorable titles
     /**
-     * Displays the restorable titles.
+     * Displays the restorable titles, oldest first.
      */
     public void viewRestorable() {
         int restorableCount = 0;
-        for (int i = 0; i < count; i++) {
-            if (titles[i].isRestorable() && !findRestored(titles[i])) {
-                System.out.println(titles[i]);
-                restorableCount++;
+        int lastYear = LocalDate.now().getYear() - Title.RESTORATION_AGE;
+        for (IntList slots : yearIndex.range(Integer.MIN_VALUE, lastYear)) {
+            for (int i = 0; i < slots.size(); i++) {
+                Title title = titles[slots.get(i)];
+                if (title != null && !findRestored(title)) {
+                    System.out.println(title);
+                    restorableCount++;
+                }
             }
         }
         if (restorableCount == 0) {
@@ -323,18 +1155,24 @@ public class Catalog {
     // Restore titles
     /**
      * Restores titles that are due for restoration and adds them to the restoredTitles array.
+     * Titles are restored oldest first.
      */
     public void restore() {
         int restoredCount = 0;
-        for (int i = 0; i < count; i++) {
-            if (titles[i].isRestorable() && !findRestored(titles[i])) {
-                try {
-                    RTitle rt = new RTitle((Title) titles[i].clone(), LocalDate.now());
-                    addRestoredTitle(rt);
-                    System.out.println(titles[i]);
-                    restoredCount++;
-                } catch (CloneNotSupportedException e) {
-                    System.out.println("Error cloning title: " + titles[i].getTitle());
+        LocalDate today = LocalDate.now();
+        int lastYear = today.getYear() - Title.RESTORATION_AGE;
+        for (IntList slots : yearIndex.range(Integer.MIN_VALUE, lastYear)) {
+            for (int i = 0; i < slots.size(); i++) {
+                Title title = titles[slots.get(i)];
+                if (title != null && !findRestored(title)) {
+                    try {
+                        RTitle rt = new RTitle((Title) title.clone(), today);
+                        addRestoredTitle(rt);
+                        System.out.println(title);
+                        restoredCount++;
+                    } catch (CloneNotSupportedException e) {
+                        System.out.println("Error cloning title: " + title.getTitle());
+                    }
                 }
             }
         }
@@ -352,10 +1190,12 @@ public class Catalog {
      * @return a string representation of the Catalog object
      */
     public String toString() {
-        String str = String.format("%-12s\t%-35s\t%-25s\t%-5s\t%-7s\t%-15s\t%-10s", "Call Number", "Title", "Publisher", "Year", "#Copies", "Author/Month", "ISBN/Issue");
-        for (int i = 0; i < count; i++) {
-            str += "\n" + titles[i].toString();
+        StringBuilder str = new StringBuilder(HEADER);
+        for (int i = 0; i < size; i++) {
+            if (titles[i] != null) {
+                str.append('\n').append(titles[i].toString());
+            }
         }
-        return str;
+        return str.toString();
     }
 }
\ No newline at end of file
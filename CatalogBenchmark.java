@@ -0,0 +1,389 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Class CatalogBenchmark to time the main Catalog operations on large catalogs.
+ * For each catalog size it writes a synthetic titles file, then runs each
+ * operation through warmup and measured iterations of at least 100 ms each.
+ * It reports the time per operation, the bytes allocated per operation (from
+ * the thread allocation counters, like JMH's gc profiler) and the garbage
+ * collections during the measurement; worker threads report what they
+ * allocate, so the concurrent benchmark counts it too. Every result feeds a
+ * checksum printed at the end, so the JIT cannot drop the calls as dead code.
+ * Results are printed as a table and written as CSV so runs can be compared.
+ * Usage: java CatalogBenchmark [--csv file] [--iterations n] [size ...]
+ * The default sizes are 1000 and 100000; 10000000 needs a heap of several GB.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class CatalogBenchmark {
+    // Lookups done by one iteration of a lookup benchmark
+    private static final int LOOKUPS = 100_000;
+    private static final int WARMUP = 2;
+    // Shortest time an iteration runs for
+    private static final long MIN_ITERATION_NANOS = 100_000_000L;
+    private static final long SEED = 42;
+
+    // Sum of the results, printed at the end so the JIT cannot drop the calls that produce them
+    private static long checksum;
+
+    // One benchmarked operation
+    private abstract static class Bench {
+        private final String name;
+
+        Bench(String name) {
+            this.name = name;
+        }
+
+        // Prepares an iteration; not timed
+        void setup() throws Exception {
+        }
+
+        // Runs an iteration and returns the number of operations it did
+        abstract long run() throws Exception;
+    }
+
+    // Data members
+    private final int size;
+    private final Path dir;
+    private final Path file;
+    private final int iterations;
+    private final PrintWriter csv;
+    private List<Title> titles;
+    private Catalog catalog;
+    // Bytes allocated by worker threads, which the thread running the benchmark cannot see
+    private final AtomicLong workerBytes = new AtomicLong();
+
+    /**
+     * Constructor for the benchmarks of one catalog size
+     * @param size the number of titles
+     * @param dir the directory for the data files
+     * @param iterations the number of measured iterations of each benchmark
+     * @param csv where to write the results
+     */
+    CatalogBenchmark(int size, Path dir, int iterations, PrintWriter csv) {
+        this.size = size;
+        this.dir = dir;
+        this.file = dir.resolve("titles-" + size + ".txt");
+        this.iterations = iterations;
+        this.csv = csv;
+    }
+
+    /**
+     * Main method to run the benchmarks.
+     *
+     * @param args --csv file, --iterations n, and the catalog sizes
+     * @throws Exception if a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        String csvFile = "benchmark.csv";
+        int iterations = 5;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--csv")) {
+                csvFile = args[++i];
+            } else if (args[i].equals("--iterations")) {
+                iterations = Integer.parseInt(args[++i]);
+            } else {
+                sizes.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (sizes.isEmpty()) {
+            sizes.addAll(Arrays.asList(1000, 100_000));
+        }
+        Path dir = Files.createTempDirectory("catalog-benchmark");
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(Paths.get(csvFile), StandardCharsets.UTF_8))) {
+            csv.println("benchmark,titles,operations,ns_per_op,bytes_per_op,gc_count,gc_ms");
+            System.out.printf("%-22s %10s %14s %14s %6s %8s%n", "benchmark", "titles", "ns/op", "bytes/op", "gc", "gc ms");
+            for (int size : sizes) {
+                new CatalogBenchmark(size, dir, iterations, csv).runAll();
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(p);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+        System.out.println("Results written to " + csvFile + " (checksum " + checksum + ")");
+    }
+
+    // Runs every benchmark for this size
+    private void runAll() throws Exception {
+        new CatalogGenerator(SEED).restoredShare(0).distinct(Math.max(size / 4, 1), 500, Math.max(size / 10, 1))
+                .writeText(file.toString(), size);
+        Random random = new Random(SEED);
+        catalog = load();
+        // Keep the file order: findYearRange would hand copy() titles already sorted by year,
+        // which flatters sort and changes which titles removeTitle and restore meet
+        titles = new ArrayList<>(size);
+        for (Title t : catalog.snapshot()) {
+            titles.add(t);
+        }
+        String[] hits = new String[LOOKUPS];
+        String[] misses = new String[LOOKUPS];
+        String[] names = new String[LOOKUPS];
+        int[] years = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            Title t = titles.get(random.nextInt(titles.size()));
+            hits[i] = t.getCallN();
+            misses[i] = String.format("B-%03d-%03d-%03d", 999, random.nextInt(1000), random.nextInt(1000));
+            names[i] = t.getTitle();
+            years[i] = t.getYear();
+        }
+
+        measure(new Bench("readTitles") {
+            @Override
+            long run() {
+                checksum += load().getCount();
+                return 1;
+            }
+        });
+        measure(new Bench("saveTitles") {
+            @Override
+            long run() {
+                catalog.saveTitles(dir.resolve("saved.txt").toString());
+                return 1;
+            }
+        });
+        measure(new Bench("findCallN.hit") {
+            @Override
+            long run() {
+                for (String c : hits) {
+                    consume(catalog.findCallN(c));
+                }
+                return hits.length;
+            }
+        });
+        measure(new Bench("findCallN.miss") {
+            @Override
+            long run() {
+                for (String c : misses) {
+                    consume(catalog.findCallN(c));
+                }
+                return misses.length;
+            }
+        });
+        measure(new Bench("findTitle") {
+            @Override
+            long run() {
+                for (int i = 0; i < LOOKUPS / 10; i++) {
+                    consume(catalog.findTitle(names[i]));
+                }
+                return LOOKUPS / 10;
+            }
+        });
+        measure(new Bench("findYear") {
+            @Override
+            long run() {
+                for (int i = 0; i < LOOKUPS / 100; i++) {
+                    consume(catalog.findYear(years[i]));
+                }
+                return LOOKUPS / 100;
+            }
+        });
+        measure(new Bench("toString") {
+            @Override
+            long run() {
+                checksum += catalog.toString().length();
+                return 1;
+            }
+        });
+        measure(new Bench("sort") {
+            private Catalog c;
+
+            @Override
+            void setup() {
+                c = copy();
+            }
+
+            @Override
+            long run() {
+                c.sort();
+                return 1;
+            }
+        });
+        measure(new Bench("removeTitle") {
+            private Catalog c;
+
+            @Override
+            void setup() {
+                c = copy();
+            }
+
+            @Override
+            long run() {
+                // Remove a tenth of the titles, spread over the catalog
+                int n = 0;
+                for (int i = 0; i < titles.size(); i += 10) {
+                    c.removeTitle(titles.get(i).getCallN());
+                    n++;
+                }
+                return n;
+            }
+        });
+        measure(new Bench("restore") {
+            private Catalog c;
+
+            @Override
+            void setup() {
+                c = copy();
+            }
+
+            @Override
+            long run() {
+                c.restore();
+                return 1;
+            }
+        });
+        int threads = Runtime.getRuntime().availableProcessors();
+        ConcurrentCatalog shared = new ConcurrentCatalog(size);
+        shared.addTitles(titles);
+        measure(new Bench("concurrent.findCallN." + threads) {
+            @Override
+            long run() throws InterruptedException {
+                return concurrentLookups(shared, hits, threads);
+            }
+        });
+        catalog = null;
+        titles = null;
+    }
+
+    // Reads the titles file into a new catalog
+    private Catalog load() {
+        Catalog c = new Catalog(size);
+        c.readTitles(file.toString());
+        return c;
+    }
+
+    // Builds a new catalog with the same titles
+    private Catalog copy() {
+        Catalog c = new Catalog(size);
+        c.addTitles(titles);
+        return c;
+    }
+
+    // Adds a lookup result to the checksum
+    private static void consume(Title t) {
+        checksum += t == null ? 0 : 1;
+    }
+
+    // Adds a lookup result to the checksum
+    private static void consume(Title[] t) {
+        checksum += t == null ? 0 : t.length;
+    }
+
+    // Runs lookups from several threads at once and returns how many were done
+    private long concurrentLookups(Catalog c, String[] keys, int threads) throws InterruptedException {
+        ThreadMXBean mx = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicLong found = new AtomicLong();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            Thread worker = new Thread(() -> {
+                long allocated = mx.getThreadAllocatedBytes(Thread.currentThread().getId());
+                try {
+                    start.await();
+                    long n = 0;
+                    for (int i = 0; i < keys.length; i++) {
+                        if (c.findCallN(keys[(i + offset * 7919) % keys.length]) != null) {
+                            n++;
+                        }
+                    }
+                    found.addAndGet(n);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    workerBytes.addAndGet(mx.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated);
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+        start.countDown();
+        done.await();
+        checksum += found.get();
+        return (long) keys.length * threads;
+    }
+
+    // Runs the warmup and measured iterations of a benchmark and reports them
+    private void measure(Bench b) throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        PrintStream out = System.out;
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        long gcCount = 0;
+        long gcMillis = 0;
+        try {
+            // Catalog methods report to System.out; keep that out of the timings
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            for (int i = 0; i < WARMUP + iterations; i++) {
+                // Repeat short operations until the iteration is long enough to time
+                long iterationNanos = 0;
+                do {
+                    b.setup();
+                    long gc0 = gcCount();
+                    long gcTime0 = gcMillis();
+                    long allocated = threads.getThreadAllocatedBytes(thread) + workerBytes.get();
+                    long start = System.nanoTime();
+                    long n = b.run();
+                    long elapsed = System.nanoTime() - start;
+                    iterationNanos += elapsed;
+                    if (i >= WARMUP) {
+                        ops += n;
+                        nanos += elapsed;
+                        bytes += threads.getThreadAllocatedBytes(thread) + workerBytes.get() - allocated;
+                        gcCount += gcCount() - gc0;
+                        gcMillis += gcMillis() - gcTime0;
+                    }
+                } while (iterationNanos < MIN_ITERATION_NANOS);
+            }
+        } finally {
+            System.setOut(out);
+        }
+        double nsPerOp = (double) nanos / ops;
+        double bytesPerOp = (double) bytes / ops;
+        System.out.printf("%-22s %10d %14.1f %14.1f %6d %8d%n", b.name, size, nsPerOp, bytesPerOp, gcCount, gcMillis);
+        csv.printf("%s,%d,%d,%.1f,%.1f,%d,%d%n", b.name, size, ops, nsPerOp, bytesPerOp, gcCount, gcMillis);
+        csv.flush();
+    }
+
+    // Returns the number of collections so far
+    private static long gcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            n += Math.max(gc.getCollectionCount(), 0);
+        }
+        return n;
+    }
+
+    // Returns the time spent collecting so far
+    private static long gcMillis() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            n += Math.max(gc.getCollectionTime(), 0);
+        }
+        return n;
+    }
+}
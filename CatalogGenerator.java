@@ -0,0 +1,447 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Class CatalogGenerator to write synthetic catalogs for load and soak tests.
+ * Lines follow the titles file format that Catalog.readTitles reads: books and
+ * periodicals with B and P call numbers, periodical months written as names
+ * or numbers, and a share of restored titles with their restoration dates.
+ * Titles, publishers and authors are drawn from Zipf distributions, so a few
+ * repeat very often and most rarely, and years are spread over the 120 years
+ * before the generation date, so part of the catalog is old enough to be
+ * restored. Restoration dates are never later than the generation date,
+ * which is 2024-06-01 unless it is set, so the clock does not change the output.
+ * The same seed and settings always give the same catalog. Lines are written
+ * as they are generated, so memory use does not depend on the number of lines.
+ * The same titles can also be written as a binary snapshot.
+ * Usage: java CatalogGenerator lines file [--seed n] [--restored share]
+ *        [--named-months share] [--zipf exponent] [--year y | --date yyyy-mm-dd]
+ *        [--snapshot]
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class CatalogGenerator {
+    // Most call numbers of one type
+    private static final long CALL_NUMBERS = 1_000_000_000L;
+    // Odd and not a multiple of 5, so it shuffles call numbers without repeating any
+    private static final long CALL_STEP = 738_219_403L;
+    // Years the catalog spans, back from the generation date
+    private static final int SPAN = 120;
+    // Restored titles were restored within this many years of the generation date
+    private static final int RESTORED_WITHIN = 30;
+    private static final long DEFAULT_SEED = 1;
+    private static final double DEFAULT_RESTORED_SHARE = 0.05;
+    private static final double DEFAULT_NAMED_MONTH_SHARE = 0.5;
+    private static final double DEFAULT_EXPONENT = 1.0;
+    private static final LocalDate DEFAULT_DATE = LocalDate.of(2024, 6, 1);
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final String[] ADJECTIVES = {"Introduction to", "Principles of", "Advanced", "Modern",
+        "Practical", "Applied", "Foundations of", "Essentials of", "Handbook of", "Topics in"};
+    private static final String[] SUBJECTS = {"Algorithms", "Data Structures", "Operating Systems", "Databases",
+        "Networks", "Compilers", "Statistics", "Calculus", "Linear Algebra", "Physics", "Chemistry", "Biology",
+        "Economics", "Philosophy", "History", "Software Engineering", "Machine Learning", "Graphics"};
+    private static final String[] FIELDS = {"Computing", "Science", "Engineering", "Mathematics", "Medicine",
+        "Economics", "Software", "Physics", "History", "Education"};
+    private static final String[] PUBLISHERS = {"Pearson", "Wiley", "Springer", "Elsevier", "IEEE", "ACM",
+        "Prentice Hall", "O'Reilly", "MIT Press", "Oxford University Press", "Cambridge University Press", "McGraw Hill"};
+    private static final String[] FIRST_NAMES = {"Ada", "Alan", "Barbara", "Donald", "Edsger", "Grace", "John",
+        "Leslie", "Margaret", "Niklaus", "Radia", "Tony"};
+    private static final String[] LAST_NAMES = {"Lovelace", "Turing", "Liskov", "Knuth", "Dijkstra", "Hopper",
+        "McCarthy", "Lamport", "Hamilton", "Wirth", "Perlman", "Hoare", "Kernighan", "Ritchie", "Weiss"};
+
+    // Draws ranks from 1 to n with probability proportional to 1 / rank^exponent,
+    // by rejection-inversion, so it needs no table of n probabilities
+    private static class Zipf {
+        private final int n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        Zipf(int n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            hIntegralX1 = hIntegral(1.5) - 1;
+            hIntegralN = hIntegral(n + 0.5);
+            s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        int next(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                int k = (int) Math.max(1, Math.min(n, (long) (x + 0.5)));
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return expm1OverX((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(x * (1 - exponent), -1);
+            return Math.exp(log1pOverX(t) * x);
+        }
+
+        private static double log1pOverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        private static double expm1OverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+
+    // Data members
+    private final long seed;
+    private double restoredShare;
+    private double namedMonthShare;
+    private double periodicalShare;
+    private double exponent;
+    private int titles;
+    private int publishers;
+    private int authors;
+    private LocalDate date;
+
+    /**
+     * Constructor with the seed of the catalog
+     * @param seed the seed; the same seed gives the same catalog
+     */
+    public CatalogGenerator(long seed) {
+        this.seed = seed;
+        restoredShare = DEFAULT_RESTORED_SHARE;
+        namedMonthShare = DEFAULT_NAMED_MONTH_SHARE;
+        periodicalShare = 0.3;
+        exponent = DEFAULT_EXPONENT;
+        titles = 100_000;
+        publishers = 2_000;
+        authors = 50_000;
+        date = DEFAULT_DATE;
+    }
+
+    /**
+     * Sets the share of lines that are restored titles.
+     *
+     * @param share a number from 0 to 1
+     * @return this generator
+     */
+    public CatalogGenerator restoredShare(double share) {
+        restoredShare = checkShare(share);
+        return this;
+    }
+
+    /**
+     * Sets the share of periodicals whose month is written as a name rather than a number.
+     *
+     * @param share a number from 0 to 1
+     * @return this generator
+     */
+    public CatalogGenerator namedMonthShare(double share) {
+        namedMonthShare = checkShare(share);
+        return this;
+    }
+
+    /**
+     * Sets the share of lines that are periodicals.
+     *
+     * @param share a number from 0 to 1
+     * @return this generator
+     */
+    public CatalogGenerator periodicalShare(double share) {
+        periodicalShare = checkShare(share);
+        return this;
+    }
+
+    /**
+     * Sets the Zipf exponent of titles, publishers and authors; larger
+     * exponents make the most common values repeat more.
+     *
+     * @param exponent a positive number, 1 by default
+     * @return this generator
+     */
+    public CatalogGenerator zipf(double exponent) {
+        if (!(exponent > 0)) {
+            throw new IllegalArgumentException("Zipf exponent must be positive: " + exponent);
+        }
+        this.exponent = exponent;
+        return this;
+    }
+
+    /**
+     * Sets how many distinct titles, publishers and authors are drawn from.
+     *
+     * @param titles the number of distinct titles
+     * @param publishers the number of distinct publishers
+     * @param authors the number of distinct authors
+     * @return this generator
+     */
+    public CatalogGenerator distinct(int titles, int publishers, int authors) {
+        if (titles < 1 || publishers < 1 || authors < 1) {
+            throw new IllegalArgumentException("Distinct counts must be positive");
+        }
+        this.titles = titles;
+        this.publishers = publishers;
+        this.authors = authors;
+        return this;
+    }
+
+    /**
+     * Sets the date the catalog is generated on; years and restoration dates
+     * are spread back from it, and no restoration date is later than it.
+     * The default is 2024-06-01.
+     *
+     * @param date the generation date
+     * @return this generator
+     */
+    public CatalogGenerator date(LocalDate date) {
+        this.date = date;
+        return this;
+    }
+
+    /**
+     * Sets the year the catalog is generated in, as of its last day.
+     *
+     * @param year the generation year
+     * @return this generator
+     */
+    public CatalogGenerator year(int year) {
+        return date(LocalDate.of(year, 12, 31));
+    }
+
+    // Checks a share
+    private static double checkShare(double share) {
+        if (!(share >= 0 && share <= 1)) {
+            throw new IllegalArgumentException("Share must be from 0 to 1: " + share);
+        }
+        return share;
+    }
+
+    // Receives the generated titles
+    private interface Output {
+        void write(Title t, LocalDate restored, boolean namedMonth) throws IOException;
+    }
+
+    /**
+     * Writes a titles file that Catalog.readTitles can read.
+     *
+     * @param filename the name of the file to write
+     * @param lines the number of lines to write
+     * @return the number of lines written
+     * @throws IOException if the file cannot be written
+     */
+    public long writeText(String filename, long lines) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            StringBuilder line = new StringBuilder(128);
+            return generate(lines, (t, restored, namedMonth) -> {
+                line.setLength(0);
+                line.append(t.getCallN()).append('|').append(t.getTitle()).append('|').append(t.getPublisher())
+                    .append('|').append(t.getYear()).append('|').append(t.getCopies()).append('|');
+                if (t instanceof Book) {
+                    line.append(((Book) t).getAuthor()).append('|').append(((Book) t).getISBN());
+                } else {
+                    Periodical p = (Periodical) t;
+                    if (namedMonth) {
+                        line.append(MonthCodec.name(p.getMonth()));
+                    } else {
+                        line.append(p.getMonth());
+                    }
+                    line.append('|').append(p.getIssue());
+                }
+                if (restored != null) {
+                    line.append('|').append(restored);
+                }
+                line.append('\n');
+                out.append(line);
+            });
+        }
+    }
+
+    /**
+     * Writes the same titles as writeText into a binary snapshot that
+     * Catalog.loadSnapshot can read.
+     *
+     * @param filename the name of the snapshot to write
+     * @param lines the number of titles to write
+     * @return the number of titles written
+     * @throws IOException if the snapshot cannot be written
+     */
+    public long writeSnapshot(String filename, long lines) throws IOException {
+        try (SnapshotWriter out = new SnapshotWriter(filename)) {
+            long n = generate(lines, (t, restored, namedMonth) -> {
+                if (restored != null) {
+                    out.add(new RTitle(t, restored));
+                } else {
+                    out.add(t);
+                }
+            });
+            out.commit();
+            return n;
+        }
+    }
+
+    // Generates the titles one at a time
+    private long generate(long lines, Output out) throws IOException {
+        if (lines < 0 || lines > CALL_NUMBERS) {
+            throw new IllegalArgumentException("Lines must be from 0 to " + CALL_NUMBERS + ": " + lines);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        Zipf titleRanks = new Zipf(titles, exponent);
+        Zipf publisherRanks = new Zipf(publishers, exponent);
+        Zipf authorRanks = new Zipf(authors, exponent);
+        long offset = random.nextLong(CALL_NUMBERS);
+        for (long i = 0; i < lines; i++) {
+            boolean periodical = random.nextDouble() < periodicalShare;
+            boolean restored = random.nextDouble() < restoredShare;
+            String callN = callNumber(periodical ? 'P' : 'B', (i * CALL_STEP + offset) % CALL_NUMBERS);
+            int rank = titleRanks.next(random);
+            String publisher = publisher(publisherRanks.next(random));
+            // Restored titles are old enough to have been restored
+            int age = restored ? Title.RESTORATION_AGE + random.nextInt(SPAN - Title.RESTORATION_AGE + 1) : random.nextInt(SPAN + 1);
+            int year = date.getYear() - age;
+            int copies = 1 + random.nextInt(10);
+            Title t;
+            if (periodical) {
+                t = new Periodical(callN, periodicalTitle(rank), publisher, year, copies, 1 + random.nextInt(12), 1 + random.nextInt(52));
+            } else {
+                t = new Book(callN, bookTitle(rank), publisher, year, copies, author(authorRanks.next(random)), isbn(random));
+            }
+            LocalDate restoredOn = null;
+            if (restored) {
+                // Restored recently, after the title became restorable, and not after the generation date
+                long first = LocalDate.of(Math.max(year + Title.RESTORATION_AGE, date.getYear() - RESTORED_WITHIN), 1, 1).toEpochDay();
+                restoredOn = LocalDate.ofEpochDay(first + random.nextLong(date.toEpochDay() - first + 1));
+            }
+            out.write(t, restoredOn, random.nextDouble() < namedMonthShare);
+        }
+        return lines;
+    }
+
+    // Formats a call number, zero padding each group of three digits
+    private static String callNumber(char type, long n) {
+        char[] c = {type, '-', '0', '0', '0', '-', '0', '0', '0', '-', '0', '0', '0'};
+        for (int i = c.length - 1; i > 1; i--) {
+            if (c[i] != '-') {
+                c[i] = (char) ('0' + n % 10);
+                n /= 10;
+            }
+        }
+        return new String(c);
+    }
+
+    // Names the book title of a rank
+    private static String bookTitle(int rank) {
+        int k = rank - 1;
+        String name = ADJECTIVES[k % ADJECTIVES.length] + " " + SUBJECTS[k / ADJECTIVES.length % SUBJECTS.length];
+        int edition = k / (ADJECTIVES.length * SUBJECTS.length);
+        return edition == 0 ? name : name + " " + (edition + 1);
+    }
+
+    // Names the periodical title of a rank
+    private static String periodicalTitle(int rank) {
+        int k = rank - 1;
+        String name = "Journal of " + FIELDS[k % FIELDS.length];
+        int series = k / FIELDS.length;
+        return series == 0 ? name : name + " " + (char) ('A' + series % 26) + (series / 26 == 0 ? "" : String.valueOf(series / 26));
+    }
+
+    // Names the publisher of a rank
+    private static String publisher(int rank) {
+        int k = rank - 1;
+        String name = PUBLISHERS[k % PUBLISHERS.length];
+        return k < PUBLISHERS.length ? name : name + " " + (k / PUBLISHERS.length + 1);
+    }
+
+    // Names the author of a rank
+    private static String author(int rank) {
+        int k = rank - 1;
+        String name = FIRST_NAMES[k % FIRST_NAMES.length] + " " + LAST_NAMES[k / FIRST_NAMES.length % LAST_NAMES.length];
+        int n = k / (FIRST_NAMES.length * LAST_NAMES.length);
+        return n == 0 ? name : name + " " + (n + 1);
+    }
+
+    // Draws an ISBN-13 with a valid check digit
+    private static String isbn(SplittableRandom random) {
+        char[] c = {'9', '7', '8', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0'};
+        int n = random.nextInt(1_000_000_000);
+        for (int i = 11; i > 2; i--) {
+            c[i] = (char) ('0' + n % 10);
+            n /= 10;
+        }
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (c[i] - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        c[12] = (char) ('0' + (10 - sum % 10) % 10);
+        return new String(c);
+    }
+
+    /**
+     * Main method to generate a catalog from the command line.
+     *
+     * @param args the number of lines, the file, and the options
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java CatalogGenerator lines file [--seed n] [--restored share] "
+                    + "[--named-months share] [--zipf exponent] [--year y | --date yyyy-mm-dd] [--snapshot]");
+            return;
+        }
+        long lines = Long.parseLong(args[0]);
+        String filename = args[1];
+        long seed = DEFAULT_SEED;
+        double restored = DEFAULT_RESTORED_SHARE;
+        double namedMonths = DEFAULT_NAMED_MONTH_SHARE;
+        double exponent = DEFAULT_EXPONENT;
+        LocalDate date = DEFAULT_DATE;
+        boolean snapshot = false;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--restored":
+                    restored = Double.parseDouble(args[++i]);
+                    break;
+                case "--named-months":
+                    namedMonths = Double.parseDouble(args[++i]);
+                    break;
+                case "--zipf":
+                    exponent = Double.parseDouble(args[++i]);
+                    break;
+                case "--year":
+                    date = LocalDate.of(Integer.parseInt(args[++i]), 12, 31);
+                    break;
+                case "--date":
+                    date = LocalDate.parse(args[++i]);
+                    break;
+                case "--snapshot":
+                    snapshot = true;
+                    break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        CatalogGenerator g = new CatalogGenerator(seed).restoredShare(restored).namedMonthShare(namedMonths)
+                .zipf(exponent).date(date);
+        long start = System.nanoTime();
+        long n = snapshot ? g.writeSnapshot(filename, lines) : g.writeText(filename, lines);
+        System.out.printf("%d titles written to %s in %.1f s%n", n, filename, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,426 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Class CatalogJournal to persist catalog changes as an append-only log.
+ * Every addTitle, removeTitle and restored title is appended as one small
+ * record to a journal segment next to the catalog snapshot, so the cost of
+ * persisting a change does not depend on the size of the catalog.
+ * Records are forced to disk in groups: once GROUP_SIZE records are waiting,
+ * or at the latest SYNC_INTERVAL_MS after the first unsynced record.
+ * When a segment passes the compaction threshold, a new segment is started
+ * and a background thread writes a fresh snapshot, then deletes the old segments.
+ * On startup, recover loads the snapshot and replays, exactly as they were
+ * logged, the segments written after it. The snapshot header names the last
+ * segment it includes, so a segment left behind by a crash during compaction
+ * is deleted rather than applied twice.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class CatalogJournal implements Closeable {
+    /**
+     * First four bytes of every journal segment, "CATJ" in ASCII.
+     */
+    public static final int MAGIC = 0x4341544A;
+    /**
+     * Version of the journal format written by this class.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Number of records forced to disk together.
+     */
+    public static final int GROUP_SIZE = 64;
+    /**
+     * Longest time a record waits before being forced to disk.
+     */
+    public static final long SYNC_INTERVAL_MS = 10;
+    /**
+     * Default segment size that starts a compaction.
+     */
+    public static final long DEFAULT_THRESHOLD = 64L << 20;
+
+    // Operation codes of the records
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte RESTORE = 3;
+    // Size of the segment header and of the append buffer
+    private static final int HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Data members
+    private final Catalog catalog;
+    private final Path snapshot;
+    private final long threshold;
+    private final ScheduledExecutorService flusher;
+    private final CRC32 crc;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private int segment;
+    private long segmentBytes;
+    private int pending;
+    private Thread compactor;
+
+    /**
+     * Constructor that opens the journal of a catalog, appending to its newest
+     * segment or starting the first one.
+     * Call recover first so the catalog holds the persisted state.
+     * 
+     * @param catalog the catalog whose changes are logged
+     * @param snapshotFile the name of the catalog snapshot the journal belongs to
+     * @param threshold the segment size in bytes that starts a compaction
+     * @throws IOException if the segment cannot be created
+     */
+    public CatalogJournal(Catalog catalog, String snapshotFile, long threshold) throws IOException {
+        this.catalog = catalog;
+        this.snapshot = Paths.get(snapshotFile).toAbsolutePath();
+        this.threshold = threshold;
+        crc = new CRC32();
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        List<Integer> segments = segments(snapshot);
+        int covered = Files.exists(snapshot) ? new SnapshotReader(snapshot.toString()).readSegment() : 0;
+        if (segments.isEmpty() || segments.get(segments.size() - 1) <= covered) {
+            // Number the new segment after the ones the snapshot includes
+            segment = covered;
+            startSegment();
+        } else {
+            // Keep appending to the newest segment that recover replayed
+            segment = segments.get(segments.size() - 1);
+            channel = FileChannel.open(segmentPath(snapshot, segment), StandardOpenOption.WRITE);
+            segmentBytes = channel.size();
+            channel.position(segmentBytes);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catalog-journal-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushPending, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads a catalog snapshot, if there is one, then replays the journal
+     * segments written after it. Segments the snapshot already includes are deleted.
+     * A torn record at the end of a segment, left by a crash, ends that segment.
+     * 
+     * @param catalog the catalog to load into; it should not have a journal yet
+     * @param snapshotFile the name of the catalog snapshot
+     * @return the number of journal records replayed
+     * @throws IOException if the snapshot or a segment cannot be read
+     */
+    public static long recover(Catalog catalog, String snapshotFile) throws IOException {
+        Path snapshot = Paths.get(snapshotFile).toAbsolutePath();
+        int covered = 0;
+        if (Files.exists(snapshot)) {
+            SnapshotReader reader = new SnapshotReader(snapshot.toString());
+            reader.load(catalog);
+            covered = reader.getSegment();
+        }
+        long replayed = 0;
+        for (int n : segments(snapshot)) {
+            if (n <= covered) {
+                Files.deleteIfExists(segmentPath(snapshot, n));
+            } else {
+                replayed += replay(catalog, segmentPath(snapshot, n));
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Logs a title added to the catalog.
+     * 
+     * @param t the added title
+     */
+    public void logAdd(Title t) {
+        append(ADD, RecordCodec.encode(t, null));
+    }
+
+    /**
+     * Logs a title removed from the catalog.
+     * 
+     * @param c the call number of the removed title
+     */
+    public void logRemove(String c) {
+        byte[] callN = RecordCodec.utf8(c);
+        ByteBuffer b = ByteBuffer.allocate(RecordCodec.size(callN));
+        RecordCodec.put(b, callN);
+        append(REMOVE, b.array());
+    }
+
+    /**
+     * Logs a restored title added to the catalog.
+     * 
+     * @param rt the restored title
+     */
+    public void logRestore(RTitle rt) {
+        append(RESTORE, RecordCodec.encode(rt.getTitle(), rt.getDate()));
+    }
+
+    /**
+     * Forces every logged record to disk.
+     * 
+     * @throws IOException if the records cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        writeBuffer();
+        if (pending > 0) {
+            channel.force(false);
+            pending = 0;
+        }
+    }
+
+    /**
+     * Forces the remaining records to disk, waits for a running compaction
+     * and closes the journal.
+     * 
+     * @throws IOException if the records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        Thread t;
+        synchronized (this) {
+            sync();
+            channel.close();
+            t = compactor;
+        }
+        if (t != null) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Appends one record, first starting a compaction if the segment is full
+    private synchronized void append(byte op, byte[] body) {
+        int length = 1 + body.length;
+        // Do every write before buffering the record, so a failure leaves nothing
+        // logged and the catalog, which logs before it changes, unchanged too.
+        // Compacting before the record also means the snapshot holds exactly the
+        // records of the segments it replaces.
+        try {
+            if (segmentBytes >= threshold && compactor == null) {
+                compact();
+            }
+            if (pending >= GROUP_SIZE) {
+                sync();
+            }
+            if (buffer.remaining() < 8 + length) {
+                writeBuffer();
+                if (buffer.capacity() < 8 + length) {
+                    buffer = ByteBuffer.allocate(8 + length);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        crc.reset();
+        crc.update(op);
+        crc.update(body);
+        buffer.putInt(length).put(op).put(body).putInt((int) crc.getValue());
+        segmentBytes += 8 + length;
+        pending++;
+    }
+
+    // Called by the flusher thread so records never wait long for their sync
+    private synchronized void flushPending() {
+        if (pending > 0 && channel.isOpen()) {
+            try {
+                sync();
+            } catch (IOException e) {
+                System.out.println("Cannot write the catalog journal: " + e.getMessage());
+            }
+        }
+    }
+
+    // Writes the buffered records to the segment without forcing them
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Closes the current segment and opens the next one
+    private void startSegment() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+        }
+        segment++;
+        channel = FileChannel.open(segmentPath(snapshot, segment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+        segmentBytes = HEADER_SIZE;
+    }
+
+    // Starts a new segment and writes a snapshot of the catalog in the background
+    private void compact() throws IOException {
+        int last = segment;
+        startSegment();
+        // Copy the title references now; the catalog keeps changing while the snapshot is written
+        List<Title> titles = new ArrayList<>();
+        List<RTitle> restored = new ArrayList<>();
+        catalog.exportState(new TitleSink() {
+            public void add(Title t) {
+                titles.add(t);
+            }
+
+            public void add(RTitle rt) {
+                restored.add(rt);
+            }
+        });
+        compactor = new Thread(() -> writeSnapshot(titles, restored, last), "catalog-journal-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    // Writes the copied titles as the new snapshot and deletes the segments it replaces
+    private void writeSnapshot(List<Title> titles, List<RTitle> restored, int last) {
+        try {
+            try (SnapshotWriter writer = new SnapshotWriter(snapshot.toString())) {
+                for (Title t : titles) {
+                    writer.add(t);
+                }
+                for (RTitle rt : restored) {
+                    writer.add(rt);
+                }
+                writer.setSegment(last);
+                writer.commit();
+            }
+            for (int n : segments(snapshot)) {
+                if (n <= last) {
+                    Files.deleteIfExists(segmentPath(snapshot, n));
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot compact the catalog journal: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                compactor = null;
+            }
+        }
+    }
+
+    // Applies the records of one segment to a catalog
+    private static long replay(Catalog catalog, Path path) throws IOException {
+        Replay replay = new Replay();
+        long size = Files.size(path);
+        if (size >= HEADER_SIZE) {
+            applyRecords(catalog, path, size, replay);
+        }
+        // Drop a torn record left at the end by a crash, through a new channel
+        // once the channel that mapped the segment is closed
+        if (replay.good < size) {
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                out.truncate(replay.good);
+            }
+        }
+        return replay.records;
+    }
+
+    // Records applied from a segment and the end of the last whole record
+    private static class Replay {
+        private long records;
+        private long good;
+    }
+
+    // Applies the whole records of a segment and notes where they end
+    private static void applyRecords(Catalog catalog, Path path, long size, Replay replay) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer b = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (b.getInt() != MAGIC) {
+                throw new IOException("Not a catalog journal: " + path);
+            }
+            int version = b.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported journal version " + version + ": " + path);
+            }
+            RecordCodec codec = new RecordCodec();
+            CRC32 crc = new CRC32();
+            replay.good = b.position();
+            while (b.remaining() >= 4) {
+                int length = b.getInt();
+                // Written so a huge length from a torn record cannot overflow
+                if (length < 1 || length > b.remaining() - 4) {
+                    break;
+                }
+                int start = b.position();
+                int end = start + length;
+                ByteBuffer record = b.duplicate();
+                record.limit(end);
+                crc.reset();
+                crc.update(record);
+                b.position(end);
+                if ((int) crc.getValue() != b.getInt()) {
+                    break;
+                }
+                b.position(start);
+                apply(catalog, codec, b, end);
+                b.position(end + 4);
+                replay.good = b.position();
+                replay.records++;
+            }
+        }
+    }
+
+    // Applies one record to a catalog
+    private static void apply(Catalog catalog, RecordCodec codec, ByteBuffer b, int end) throws IOException {
+        byte op = b.get();
+        if (op == ADD) {
+            catalog.addTitle(codec.decode(b, end));
+        } else if (op == REMOVE) {
+            catalog.removeTitle(codec.string(b, end));
+        } else if (op == RESTORE) {
+            Title t = codec.decode(b, end);
+            catalog.addRestoredTitle(new RTitle(t, codec.getRestorationDate()));
+        } else {
+            throw new IOException("Unknown journal operation " + op);
+        }
+    }
+
+    // Returns the numbers of the existing segments of a snapshot, in order
+    private static List<Integer> segments(Path snapshot) throws IOException {
+        String prefix = snapshot.getFileName() + ".journal.";
+        List<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(snapshot.getParent(), prefix + "*")) {
+            for (Path p : dir) {
+                try {
+                    numbers.add(Integer.parseInt(p.getFileName().toString().substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    // Returns the path of a journal segment
+    private static Path segmentPath(Path snapshot, int n) {
+        return snapshot.resolveSibling(snapshot.getFileName() + ".journal." + n);
+    }
+}
@@ -0,0 +1,128 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+/**
+ * Class CatalogJournalCheck to check that a journaled catalog recovers to
+ * the state it was in, whether or not the journal was compacted.
+ * Each run adds titles, some of them sharing a call number, removes every
+ * second one, restores the old titles and closes the journal, then opens the
+ * journal into a new catalog and compares the titles and restored titles.
+ * It runs once with a small compaction threshold, so recovery starts from a
+ * compacted snapshot, and once with the default threshold, so recovery
+ * replays every record. A last run appends a torn record with a huge length
+ * field to the journal, which recovery must drop without losing the records
+ * before it.
+ * Usage: java CatalogJournalCheck [titles]
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class CatalogJournalCheck {
+    // Threshold small enough to compact several times during a run
+    private static final long SMALL_THRESHOLD = 200L << 10;
+    // Every DUPLICATE_EVERY-th title reuses the call number of the title before it
+    private static final int DUPLICATE_EVERY = 50;
+
+    /**
+     * Main method to run the check.
+     *
+     * @param args the number of titles to add, 20000 by default
+     * @throws IOException if the temporary files cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        Path dir = Files.createTempDirectory("catalog-journal-check");
+        boolean ok;
+        try {
+            ok = run(dir.resolve("compacted.bin"), n, SMALL_THRESHOLD);
+            ok &= run(dir.resolve("replayed.bin"), n, CatalogJournal.DEFAULT_THRESHOLD);
+            ok &= tornTail(dir.resolve("torn.bin"), n);
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(p);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // Changes a journaled catalog, recovers it, and reports whether both match
+    private static boolean run(Path file, int n, long threshold) {
+        Catalog catalog = new Catalog();
+        catalog.openJournal(file.toString(), threshold);
+        String callN = null;
+        for (int i = 0; i < n; i++) {
+            if (i % DUPLICATE_EVERY != 1) {
+                callN = String.format("B-%03d-%03d-%03d", i / 1_000_000, i / 1000 % 1000, i % 1000);
+            }
+            catalog.addTitle(new Book(callN, "Title " + i % 997, "Publisher " + i % 37, 1900 + i % 120,
+                    1 + i % 5, "Author " + i % 211, "978" + (1_000_000_000L + i)));
+        }
+        for (int i = 0; i < n; i += 2) {
+            catalog.removeTitle(String.format("B-%03d-%03d-%03d", i / 1_000_000, i / 1000 % 1000, i % 1000));
+        }
+        quietly(catalog::restore);
+        catalog.closeJournal();
+
+        Catalog recovered = new Catalog();
+        recovered.openJournal(file.toString(), threshold);
+        recovered.closeJournal();
+        boolean titles = catalog.toString().equals(recovered.toString());
+        boolean restored = quietly(catalog::viewRestored).equals(quietly(recovered::viewRestored));
+        System.out.printf("threshold %d bytes: %d titles, %d recovered, titles %s, restored titles %s%n",
+                threshold, catalog.getCount(), recovered.getCount(), titles ? "match" : "DIFFER",
+                restored ? "match" : "DIFFER");
+        return titles && restored;
+    }
+
+    // Adds titles, tears the end of the journal with a huge record length, and recovers
+    private static boolean tornTail(Path file, int n) throws IOException {
+        Catalog catalog = new Catalog();
+        catalog.openJournal(file.toString(), CatalogJournal.DEFAULT_THRESHOLD);
+        for (int i = 0; i < n; i++) {
+            catalog.addTitle(new Book(String.format("B-%03d-%03d-%03d", i / 1_000_000, i / 1000 % 1000, i % 1000),
+                    "Title " + i % 997, "Publisher " + i % 37, 1900 + i % 120, 1 + i % 5, "Author " + i % 211,
+                    "978" + (1_000_000_000L + i)));
+        }
+        catalog.closeJournal();
+        Path segment = file.resolveSibling(file.getFileName() + ".journal.1");
+        long size = Files.size(segment);
+        try (FileChannel out = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            // A length near Integer.MAX_VALUE, then less data than it claims
+            out.write(ByteBuffer.allocate(12).putInt(Integer.MAX_VALUE - 2).putInt(0x41424344).flip());
+        }
+        Catalog recovered = new Catalog();
+        String printed = quietly(() -> recovered.openJournal(file.toString(), CatalogJournal.DEFAULT_THRESHOLD));
+        recovered.closeJournal();
+        boolean titles = printed.isEmpty() && catalog.toString().equals(recovered.toString());
+        boolean truncated = Files.size(segment) == size;
+        System.out.printf("torn tail: %d titles, %d recovered, titles %s, torn record %s%n", catalog.getCount(),
+                recovered.getCount(), titles ? "match" : "DIFFER", truncated ? "dropped" : "KEPT");
+        return titles && truncated;
+    }
+
+    // Runs an action that prints, and returns what it printed
+    private static String quietly(Runnable action) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+            action.run();
+        } finally {
+            System.setOut(out);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
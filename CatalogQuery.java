@@ -0,0 +1,437 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.function.Predicate;
+
+/**
+ * Class CatalogQuery to combine several filters into one catalog query.
+ * Each filter is a predicate over the fields of Title, Book or Periodical.
+ * When the query runs, the planner asks every filter for the index postings
+ * that answer it, starts from the most selective ones, intersects the other
+ * small ones into it, and only checks the remaining filters on the titles that
+ * are left. A full scan happens only when no filter has an index.
+ * The results come back as a TitleCursor, in catalog order.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class CatalogQuery {
+    // A posting list this many times larger than the candidates is checked title by title instead
+    private static final int INTERSECT_RATIO = 4;
+
+    // One filter of a query
+    private abstract static class Filter {
+        private final String description;
+
+        Filter(String description) {
+            this.description = description;
+        }
+
+        // Returns the postings that hold exactly the matching titles, or null if no index applies
+        Collection<IntList> postings(Catalog catalog) {
+            return null;
+        }
+
+        abstract boolean test(Title t);
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    // A filter answered by checking each title
+    private static class Check extends Filter {
+        private final Predicate<Title> predicate;
+
+        Check(String description, Predicate<Title> predicate) {
+            super(description);
+            this.predicate = predicate;
+        }
+
+        @Override
+        boolean test(Title t) {
+            return predicate.test(t);
+        }
+    }
+
+    // Data members
+    private final Catalog catalog;
+    private final List<Filter> filters;
+
+    /**
+     * Constructor used by Catalog.query
+     * @param catalog the catalog to query
+     */
+    CatalogQuery(Catalog catalog) {
+        this.catalog = catalog;
+        filters = new ArrayList<>();
+    }
+
+    /**
+     * Keeps the title with a call number.
+     *
+     * @param c the call number
+     * @return this query
+     */
+    public CatalogQuery callN(String c) {
+        filters.add(new Filter("call number = \"" + c + "\"") {
+            @Override
+            Collection<IntList> postings(Catalog catalog) {
+                return catalog.callNPostings(c);
+            }
+
+            @Override
+            boolean test(Title t) {
+                return t.getCallN().equals(c);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the titles with a title.
+     *
+     * @param title the title
+     * @return this query
+     */
+    public CatalogQuery title(String title) {
+        filters.add(new Filter("title = \"" + title + "\"") {
+            @Override
+            Collection<IntList> postings(Catalog catalog) {
+                return catalog.titlePostings(title);
+            }
+
+            @Override
+            boolean test(Title t) {
+                return t.getTitle().equals(title);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the titles whose title starts with a prefix.
+     *
+     * @param prefix the beginning of the title
+     * @return this query
+     */
+    public CatalogQuery titlePrefix(String prefix) {
+        filters.add(new Filter("title starts with \"" + prefix + "\"") {
+            @Override
+            Collection<IntList> postings(Catalog catalog) {
+                return catalog.titlePrefixPostings(prefix);
+            }
+
+            @Override
+            boolean test(Title t) {
+                return t.getTitle().startsWith(prefix);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the titles from a publisher.
+     *
+     * @param publisher the publisher
+     * @return this query
+     */
+    public CatalogQuery publisher(String publisher) {
+        filters.add(new Filter("publisher = \"" + publisher + "\"") {
+            @Override
+            Collection<IntList> postings(Catalog catalog) {
+                return catalog.publisherPostings(publisher);
+            }
+
+            @Override
+            boolean test(Title t) {
+                return Objects.equals(t.getPublisher(), publisher);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the titles published in a year.
+     *
+     * @param year the publication year
+     * @return this query
+     */
+    public CatalogQuery year(int year) {
+        return yearRange(year, year);
+    }
+
+    /**
+     * Keeps the titles published in a range of years.
+     *
+     * @param from the first year of the range
+     * @param to the last year of the range, included
+     * @return this query
+     */
+    public CatalogQuery yearRange(int from, int to) {
+        String description = from == to ? "year = " + from : "year in " + from + ".." + to;
+        filters.add(new Filter(description) {
+            @Override
+            Collection<IntList> postings(Catalog catalog) {
+                return catalog.yearPostings(from, to);
+            }
+
+            @Override
+            boolean test(Title t) {
+                return t.getYear() >= from && t.getYear() <= to;
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the titles with at least a number of copies.
+     *
+     * @param copies the smallest number of copies
+     * @return this query
+     */
+    public CatalogQuery minCopies(int copies) {
+        return where("copies >= " + copies, t -> t.getCopies() >= copies);
+    }
+
+    /**
+     * Keeps only books.
+     *
+     * @return this query
+     */
+    public CatalogQuery books() {
+        return where("type = Book", t -> t instanceof Book);
+    }
+
+    /**
+     * Keeps only periodicals.
+     *
+     * @return this query
+     */
+    public CatalogQuery periodicals() {
+        return where("type = Periodical", t -> t instanceof Periodical);
+    }
+
+    /**
+     * Keeps the books by an author.
+     *
+     * @param author the author
+     * @return this query
+     */
+    public CatalogQuery author(String author) {
+        filters.add(new Filter("author = \"" + author + "\"") {
+            @Override
+            Collection<IntList> postings(Catalog catalog) {
+                return catalog.authorPostings(author);
+            }
+
+            @Override
+            boolean test(Title t) {
+                return t instanceof Book && Objects.equals(((Book) t).getAuthor(), author);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the books with an ISBN.
+     *
+     * @param isbn the ISBN
+     * @return this query
+     */
+    public CatalogQuery isbn(String isbn) {
+        return where("ISBN = \"" + isbn + "\"",
+                t -> t instanceof Book && Objects.equals(((Book) t).getISBN(), isbn));
+    }
+
+    /**
+     * Keeps the periodicals published in a month.
+     *
+     * @param month the month, from 1 to 12
+     * @return this query
+     */
+    public CatalogQuery month(int month) {
+        return where("month = " + MonthCodec.name(month),
+                t -> t instanceof Periodical && ((Periodical) t).getMonth() == month);
+    }
+
+    /**
+     * Keeps the periodicals with an issue number.
+     *
+     * @param issue the issue number
+     * @return this query
+     */
+    public CatalogQuery issue(int issue) {
+        return where("issue = " + issue,
+                t -> t instanceof Periodical && ((Periodical) t).getIssue() == issue);
+    }
+
+    /**
+     * Keeps the titles accepted by any predicate. No index applies to it.
+     *
+     * @param description how explain describes the predicate
+     * @param predicate the predicate
+     * @return this query
+     */
+    public CatalogQuery where(String description, Predicate<Title> predicate) {
+        filters.add(new Check(description, predicate));
+        return this;
+    }
+
+    /**
+     * Runs the query.
+     *
+     * @return a cursor over the matching titles, in catalog order
+     */
+    public TitleCursor run() {
+        return catalog.execute(this, null);
+    }
+
+    /**
+     * Runs the query and describes how it ran: the index that supplied the
+     * candidates, the indexes intersected into them, the filters checked on
+     * each title, and how many titles were examined.
+     *
+     * @return a description of the plan, one step per line
+     */
+    public String explain() {
+        StringBuilder plan = new StringBuilder();
+        catalog.execute(this, plan);
+        return plan.toString();
+    }
+
+    // Plans and runs the query; Catalog calls this with the catalog locked
+    /**
+     * Plans and runs the query against the slots of the catalog.
+     *
+     * @param slots the number of slots in use
+     * @param plan where to describe the plan, or null
+     * @return the slots of the matching titles, in catalog order
+     */
+    IntList execute(int slots, StringBuilder plan) {
+        // Postings of the filters that have an index, most selective first
+        List<Filter> indexed = new ArrayList<>();
+        List<Collection<IntList>> postings = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        List<Filter> checked = new ArrayList<>();
+        for (Filter f : filters) {
+            Collection<IntList> p = f.postings(catalog);
+            if (p == null) {
+                checked.add(f);
+                continue;
+            }
+            int n = 0;
+            for (IntList l : p) {
+                n += l.size();
+            }
+            int i = 0;
+            while (i < sizes.size() && sizes.get(i) <= n) {
+                i++;
+            }
+            indexed.add(i, f);
+            postings.add(i, p);
+            sizes.add(i, n);
+        }
+
+        int[] candidates;
+        int n;
+        if (indexed.isEmpty()) {
+            candidates = null;
+            n = slots;
+            step(plan, "scan " + slots + " slots");
+        } else {
+            // Start from the smallest postings, in catalog order
+            candidates = new int[sizes.get(0)];
+            n = 0;
+            for (IntList l : postings.get(0)) {
+                for (int i = 0; i < l.size(); i++) {
+                    candidates[n++] = l.get(i);
+                }
+            }
+            Arrays.sort(candidates, 0, n);
+            step(plan, "index " + indexed.get(0) + " (" + n + " slots)");
+            for (int k = 1; k < indexed.size(); k++) {
+                if (n == 0 || sizes.get(k) > n * INTERSECT_RATIO) {
+                    checked.add(indexed.get(k));
+                    continue;
+                }
+                BitSet marks = new BitSet(slots);
+                for (IntList l : postings.get(k)) {
+                    for (int i = 0; i < l.size(); i++) {
+                        marks.set(l.get(i));
+                    }
+                }
+                int kept = 0;
+                for (int i = 0; i < n; i++) {
+                    if (marks.get(candidates[i])) {
+                        candidates[kept++] = candidates[i];
+                    }
+                }
+                step(plan, "intersect " + indexed.get(k) + " (" + sizes.get(k) + " slots) -> " + kept + " candidates");
+                n = kept;
+            }
+        }
+        for (Filter f : checked) {
+            step(plan, "filter " + f);
+        }
+
+        // Read only the titles that are left and check the other filters on them
+        IntList matches = new IntList();
+        int examined = 0;
+        for (int i = 0; i < n; i++) {
+            int slot = candidates == null ? i : candidates[i];
+            Title t = catalog.slotTitle(slot);
+            if (t == null) {
+                continue;
+            }
+            examined++;
+            if (accepts(checked, t)) {
+                matches.add(slot);
+            }
+        }
+        step(plan, "examined " + examined + " rows, matched " + matches.size());
+        return matches;
+    }
+
+    // Checks every filter of a list on a title
+    private static boolean accepts(List<Filter> checked, Title t) {
+        for (Filter f : checked) {
+            if (!f.test(t)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Adds a line to the plan
+    private static void step(StringBuilder plan, String line) {
+        if (plan != null) {
+            if (plan.length() > 0) {
+                plan.append('\n');
+            }
+            plan.append(line);
+        }
+    }
+
+    /**
+     * Returns a description of the filters of the query.
+     *
+     * @return the filters joined by "and"
+     */
+    @Override
+    public String toString() {
+        if (filters.isEmpty()) {
+            return "all titles";
+        }
+        StringJoiner s = new StringJoiner(" and ");
+        for (Filter f : filters) {
+            s.add(f.toString());
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,157 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Class CatalogView to model an immutable snapshot of a Catalog.
+ * A view shares the catalog's arrays instead of copying them; the catalog
+ * copies its titles array before changing a slot a view can see, so a view
+ * never changes and can be read by any number of threads without locks.
+ * Views are returned by Catalog.snapshot.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public final class CatalogView implements Iterable<Title> {
+    // Data members
+    private final Title[] titles;
+    private final int size;
+    private final int count;
+    private final RTitle[] restoredTitles;
+    private final int rcount;
+
+    /**
+     * Constructor used by Catalog.snapshot
+     * @param titles the titles array of the catalog, which may contain removed (null) slots
+     * @param size the number of slots in use
+     * @param count the number of titles
+     * @param restoredTitles the restored titles array of the catalog
+     * @param rcount the number of restored titles
+     */
+    CatalogView(Title[] titles, int size, int count, RTitle[] restoredTitles, int rcount) {
+        this.titles = titles;
+        this.size = size;
+        this.count = count;
+        this.restoredTitles = restoredTitles;
+        this.rcount = rcount;
+    }
+
+    /**
+     * Returns the count of titles.
+     * 
+     * @return the count of titles
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the count of restored titles.
+     * 
+     * @return the count of restored titles
+     */
+    public int getRestoredCount() {
+        return rcount;
+    }
+
+    /**
+     * Returns an iterator over the titles, in catalog order.
+     * 
+     * @return an iterator over the titles
+     */
+    @Override
+    public Iterator<Title> iterator() {
+        return new Iterator<Title>() {
+            private int next = skip(0);
+
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            public Title next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                Title t = titles[next];
+                next = skip(next + 1);
+                return t;
+            }
+        };
+    }
+
+    // Returns the first slot at or after i that holds a title
+    private int skip(int i) {
+        while (i < size && titles[i] == null) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the titles sorted by year of publication, leaving the view unchanged.
+     * 
+     * @return a new array of the titles in ascending order of year
+     */
+    public Title[] sorted() {
+        Title[] t = new Title[count];
+        int n = 0;
+        for (Title title : this) {
+            t[n] = title;
+            n++;
+        }
+        Arrays.sort(t);
+        return t;
+    }
+
+    /**
+     * Displays the restorable titles.
+     */
+    public void viewRestorable() {
+        HashSet<String> restored = new HashSet<>();
+        for (int i = 0; i < rcount; i++) {
+            restored.add(restoredTitles[i].getTitle().getCallN());
+        }
+        int currentYear = LocalDate.now().getYear();
+        int restorableCount = 0;
+        for (Title title : this) {
+            if (title.isRestorable(currentYear) && !restored.contains(title.getCallN())) {
+                System.out.println(title);
+                restorableCount++;
+            }
+        }
+        if (restorableCount == 0) {
+            System.out.println("No restorable titles found");
+        } else {
+            System.out.println(restorableCount + " title(s) due for restoration");
+        }
+    }
+
+    /**
+     * Displays the restored titles.
+     */
+    public void viewRestored() {
+        if (rcount == 0) {
+            System.out.println("There are no restored titles");
+        } else {
+            for (int i = 0; i < rcount; i++) {
+                System.out.println(restoredTitles[i]);
+            }
+            System.out.println(rcount + " title(s) restored");
+        }
+    }
+
+    /**
+     * Returns a string representation of the view, in the same format as Catalog.toString.
+     * 
+     * @return a string representation of the view
+     */
+    public String toString() {
+        StringBuilder str = new StringBuilder(Catalog.HEADER);
+        for (Title title : this) {
+            str.append('\n').append(title.toString());
+        }
+        return str.toString();
+    }
+}
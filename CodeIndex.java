@@ -0,0 +1,62 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class CodeIndex to index the slots of a catalog by a StringDictionary code,
+ * such as the code of a publisher or an author.
+ * The posting list of a code is found by position, without hashing a string.
+ * Posting lists keep slots in the order they were added, and may still hold
+ * slots whose titles were removed; callers skip those.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class CodeIndex {
+    // Data members
+    private List<IntList> postings;
+
+    /**
+     * Default constructor that creates an empty index.
+     */
+    public CodeIndex() {
+        postings = new ArrayList<>();
+    }
+
+    /**
+     * Adds the slot of a title to the posting list of a code.
+     * 
+     * @param code the code, or StringDictionary.NO_CODE to add nothing
+     * @param slot the slot of the title in the catalog
+     */
+    public void add(int code, int slot) {
+        if (code == StringDictionary.NO_CODE) {
+            return;
+        }
+        while (postings.size() <= code) {
+            postings.add(null);
+        }
+        IntList slots = postings.get(code);
+        if (slots == null) {
+            slots = new IntList();
+            postings.set(code, slots);
+        }
+        slots.add(slot);
+    }
+
+    /**
+     * Returns the slots of the titles with a code.
+     * 
+     * @param code the code
+     * @return the slots of the code, or null if no title has it
+     */
+    public IntList get(int code) {
+        return code < 0 || code >= postings.size() ? null : postings.get(code);
+    }
+
+    /**
+     * Removes every slot from the index.
+     */
+    public void clear() {
+        postings.clear();
+    }
+}
@@ -0,0 +1,260 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class CompactTitleStore to hold many titles in a few flat arrays instead of
+ * one object graph per title.
+ * Each title is a row: its type, year, copies, month and issue live in
+ * primitive columns, call numbers are encoded into longs by CallNumberCodec,
+ * publishers and authors are StringDictionary codes, and titles and ISBNs are
+ * UTF-8 bytes in one shared arena, each prefixed with its length, so a row
+ * costs a few dozen bytes plus its title and ISBN. Book and Periodical
+ * objects are only created when findCallN, get or toString asks for one;
+ * changing such a view does not change the store.
+ * The store is an export format, filled by add or Catalog.toCompactStore,
+ * not the storage of a live Catalog: a catalog keeps its Title objects and
+ * indexes, and titles cannot be removed from the store.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class CompactTitleStore {
+    private static final int DEFAULT_CAPACITY = 50;
+    // Arena offset stored for a null string
+    private static final int NULL = -1;
+    private static final byte BOOK = 'B';
+    private static final byte PERIODICAL = 'P';
+
+    // Data members
+    private int rows;
+    private byte[] type;
+    private int[] year;
+    private int[] copies;
+    private int[] month;
+    private int[] issue;
+    // Encoded call number, or CallNumberCodec.INVALID if it is kept in the arena
+    private long[] callCode;
+    private int[] callN;
+    private int[] title;
+    // Dictionary codes of the publisher and author
+    private int[] publisher;
+    private int[] author;
+    private int[] isbn;
+    private byte[] arena;
+    private int arenaSize;
+    private CallNumberIndex callIndex;
+    private StringDictionary names;
+
+    /**
+     * Default constructor that creates an empty store.
+     */
+    public CompactTitleStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with a capacity hint
+     * @param capacity the expected number of titles
+     */
+    public CompactTitleStore(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        }
+        capacity = Math.max(capacity, 1);
+        type = new byte[capacity];
+        year = new int[capacity];
+        copies = new int[capacity];
+        month = new int[capacity];
+        issue = new int[capacity];
+        callCode = new long[capacity];
+        callN = new int[capacity];
+        title = new int[capacity];
+        publisher = new int[capacity];
+        author = new int[capacity];
+        isbn = new int[capacity];
+        arena = new byte[capacity * 32];
+        callIndex = new CallNumberIndex(capacity);
+        names = new StringDictionary();
+    }
+
+    /**
+     * Adds a title to the store, copying its fields.
+     *
+     * @param t the title to add
+     */
+    public void add(Title t) {
+        if (rows == type.length) {
+            grow();
+        }
+        int r = rows;
+        year[r] = t.getYear();
+        copies[r] = t.getCopies();
+        callCode[r] = CallNumberCodec.encode(t.getCallN());
+        callN[r] = callCode[r] == CallNumberCodec.INVALID ? put(t.getCallN()) : NULL;
+        title[r] = put(t.getTitle());
+        publisher[r] = names.code(t.getPublisher());
+        if (t instanceof Book) {
+            Book b = (Book) t;
+            type[r] = BOOK;
+            author[r] = names.code(b.getAuthor());
+            isbn[r] = put(b.getISBN());
+        } else {
+            Periodical p = (Periodical) t;
+            type[r] = PERIODICAL;
+            month[r] = p.getMonth();
+            issue[r] = p.getIssue();
+            author[r] = StringDictionary.NO_CODE;
+            isbn[r] = NULL;
+        }
+        callIndex.putIfAbsent(t.getCallN(), r);
+        rows++;
+    }
+
+    // Grows every column together
+    private void grow() {
+        resize(type.length * 2);
+    }
+
+    // Sets the capacity of every column
+    private void resize(int n) {
+        type = Arrays.copyOf(type, n);
+        year = Arrays.copyOf(year, n);
+        copies = Arrays.copyOf(copies, n);
+        month = Arrays.copyOf(month, n);
+        issue = Arrays.copyOf(issue, n);
+        callCode = Arrays.copyOf(callCode, n);
+        callN = Arrays.copyOf(callN, n);
+        title = Arrays.copyOf(title, n);
+        publisher = Arrays.copyOf(publisher, n);
+        author = Arrays.copyOf(author, n);
+        isbn = Arrays.copyOf(isbn, n);
+    }
+
+    /**
+     * Shrinks the columns and the arena to the titles they hold, once no
+     * more titles will be added for a while.
+     */
+    public void trim() {
+        resize(Math.max(rows, 1));
+        arena = Arrays.copyOf(arena, arenaSize);
+    }
+
+    // Copies a string into the arena and returns its offset
+    private int put(String s) {
+        if (s == null) {
+            return NULL;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (arenaSize + b.length + 5 > arena.length) {
+            long n = Math.max((long) arena.length * 2, (long) arenaSize + b.length + 5);
+            if (n > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("String arena is full");
+            }
+            arena = Arrays.copyOf(arena, (int) n);
+        }
+        int offset = arenaSize;
+        // Length as a varint: most strings need a single byte
+        int len = b.length;
+        while (len >= 0x80) {
+            arena[arenaSize++] = (byte) (len | 0x80);
+            len >>>= 7;
+        }
+        arena[arenaSize++] = (byte) len;
+        System.arraycopy(b, 0, arena, arenaSize, b.length);
+        arenaSize += b.length;
+        return offset;
+    }
+
+    // Reads a string back from the arena
+    private String string(int offset) {
+        if (offset == NULL) {
+            return null;
+        }
+        int len = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = arena[offset++];
+            len |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return new String(arena, offset, len, StandardCharsets.UTF_8);
+    }
+
+    // Returns the call number of a row
+    private String callNumber(int row) {
+        return callCode[row] == CallNumberCodec.INVALID ? string(callN[row]) : CallNumberCodec.decode(callCode[row]);
+    }
+
+    /**
+     * Returns the number of titles in the store.
+     *
+     * @return the number of titles
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Creates a Title object for a row of the store.
+     *
+     * @param row the row, from 0 to size() - 1
+     * @return a new Book or Periodical with the fields of the row
+     */
+    public Title get(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        }
+        if (type[row] == BOOK) {
+            return new Book(callNumber(row), string(title[row]), names.get(publisher[row]), year[row], copies[row],
+                    names.get(author[row]), string(isbn[row]));
+        }
+        return new Periodical(callNumber(row), string(title[row]), names.get(publisher[row]), year[row], copies[row],
+                month[row], issue[row]);
+    }
+
+    /**
+     * Finds a title by call number.
+     *
+     * @param c the call number to search for
+     * @return a new Title object for the first row with the call number, or null if not found
+     */
+    public Title findCallN(String c) {
+        int row = callIndex.get(c);
+        return row == CallNumberIndex.NO_VALUE ? null : get(row);
+    }
+
+    /**
+     * Returns an estimate of the heap used by the store: its columns, its
+     * arena, its dictionary and its call number index.
+     *
+     * @return the number of bytes used
+     */
+    public long memoryBytes() {
+        long columns = type.length + (long) (9 * Integer.BYTES + Long.BYTES) * year.length;
+        return columns + arena.length + names.memoryBytes() + callIndex.memoryBytes();
+    }
+
+    /**
+     * Returns the average heap used per title.
+     *
+     * @return memoryBytes divided by the number of titles
+     */
+    public double bytesPerTitle() {
+        return rows == 0 ? 0 : (double) memoryBytes() / rows;
+    }
+
+    /**
+     * Returns a string with all the titles of the store, like Catalog.toString.
+     *
+     * @return the column headings and one line per title
+     */
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder(Catalog.HEADER);
+        for (int r = 0; r < rows; r++) {
+            str.append('\n').append(get(r).toString());
+        }
+        return str.toString();
+    }
+}
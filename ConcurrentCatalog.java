@@ -0,0 +1,539 @@
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Class ConcurrentCatalog to model a Catalog that many threads can use at once.
+ * Every operation runs under a StampedLock: lookups share a read lock,
+ * changes take the write lock, so a writer updates the arrays and all the
+ * indexes before any reader sees them. findCallN and getCount first try an
+ * optimistic read that takes no lock at all and only fall back to the read
+ * lock if a writer got in the way.
+ * The locks are reentrant per thread, so catalog methods that call each other
+ * (readTitles calling addTitle, restore calling addRestoredTitle) do not deadlock.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class ConcurrentCatalog extends Catalog {
+    // Lock held by the current thread and how many calls deep it is held
+    private static class Hold {
+        private long stamp;
+        private int depth;
+    }
+
+    // Data members
+    private final StampedLock lock = new StampedLock();
+    private final ThreadLocal<Hold> holds = ThreadLocal.withInitial(Hold::new);
+
+    /**
+     * Default constructor
+     */
+    public ConcurrentCatalog() {
+        super();
+    }
+
+    /**
+     * Constructor with a capacity hint
+     * @param capacity the expected number of titles
+     */
+    public ConcurrentCatalog(int capacity) {
+        super(capacity);
+    }
+
+    // Takes the read lock unless this thread already holds a lock
+    private void lockRead() {
+        Hold h = holds.get();
+        if (h.depth == 0) {
+            h.stamp = lock.readLock();
+        }
+        h.depth++;
+    }
+
+    // Takes the write lock unless this thread already holds it
+    private void lockWrite() {
+        Hold h = holds.get();
+        if (h.depth == 0) {
+            h.stamp = lock.writeLock();
+        } else if (!StampedLock.isWriteLockStamp(h.stamp)) {
+            throw new IllegalStateException("Cannot change the catalog while reading it");
+        }
+        h.depth++;
+    }
+
+    // Releases the lock taken by the matching lockRead or lockWrite
+    private void unlock() {
+        Hold h = holds.get();
+        h.depth--;
+        if (h.depth == 0) {
+            lock.unlock(h.stamp);
+        }
+    }
+
+    @Override
+    public Title findCallN(String c) {
+        if (holds.get().depth == 0) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    Title t = super.findCallN(c);
+                    if (lock.validate(stamp)) {
+                        return t;
+                    }
+                } catch (RuntimeException e) {
+                    // A writer changed the index under us; retry with the read lock
+                }
+            }
+        }
+        lockRead();
+        try {
+            return super.findCallN(c);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public CatalogView snapshot() {
+        // Readers only take the lock when a writer has changed the catalog since the last view
+        CatalogView view = publishedView();
+        if (view != null) {
+            return view;
+        }
+        lockRead();
+        try {
+            return super.snapshot();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public int getCount() {
+        long stamp = lock.tryOptimisticRead();
+        int n = super.getCount();
+        if (stamp != 0 && lock.validate(stamp)) {
+            return n;
+        }
+        lockRead();
+        try {
+            return super.getCount();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    Title cursorTitle(IntList slots, int i, int cursorEpoch) {
+        // Cursors run outside the lock, so each step is an optimistic read
+        if (holds.get().depth == 0) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    Title t = super.cursorTitle(slots, i, cursorEpoch);
+                    if (lock.validate(stamp)) {
+                        return t;
+                    }
+                } catch (RuntimeException e) {
+                    // Retry with the read lock
+                }
+            }
+        }
+        lockRead();
+        try {
+            return super.cursorTitle(slots, i, cursorEpoch);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    TitleCursor cursor(Collection<IntList> postings) {
+        lockRead();
+        try {
+            return super.cursor(postings);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public TitleCursor searchAll(String words) {
+        lockRead();
+        try {
+            return super.searchAll(words);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public TitleCursor searchAny(String words) {
+        lockRead();
+        try {
+            return super.searchAny(words);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public TitleCursor searchFuzzy(String title, int maxDistance, int limit) {
+        lockRead();
+        try {
+            return super.searchFuzzy(title, maxDistance, limit);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    TitleCursor execute(CatalogQuery q, StringBuilder plan) {
+        lockRead();
+        try {
+            return super.execute(q, plan);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Book findISBN(String isbn) {
+        lockRead();
+        try {
+            return super.findISBN(isbn);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Periodical[] findSeries(String title) {
+        lockRead();
+        try {
+            return super.findSeries(title);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Periodical nextIssue(Periodical p) {
+        lockRead();
+        try {
+            return super.nextIssue(p);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Periodical previousIssue(Periodical p) {
+        lockRead();
+        try {
+            return super.previousIssue(p);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public CompactTitleStore toCompactStore() {
+        lockRead();
+        try {
+            return super.toCompactStore();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public TitleCursor queryTitle(String title) {
+        lockRead();
+        try {
+            return super.queryTitle(title);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public TitleCursor queryTitlePrefix(String prefix) {
+        lockRead();
+        try {
+            return super.queryTitlePrefix(prefix);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public TitleCursor queryYear(int year) {
+        lockRead();
+        try {
+            return super.queryYear(year);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public TitleCursor queryYearRange(int from, int to) {
+        lockRead();
+        try {
+            return super.queryYearRange(from, to);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Title[] findTitle(String title) {
+        lockRead();
+        try {
+            return super.findTitle(title);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Title[] findTitlePrefix(String prefix) {
+        lockRead();
+        try {
+            return super.findTitlePrefix(prefix);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Title[] findYear(int year) {
+        lockRead();
+        try {
+            return super.findYear(year);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Title[] findYearRange(int from, int to) {
+        lockRead();
+        try {
+            return super.findYearRange(from, to);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public boolean findRestored(Title title) {
+        lockRead();
+        try {
+            return super.findRestored(title);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public RTitle findRestoredCallN(String c) {
+        lockRead();
+        try {
+            return super.findRestoredCallN(c);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void viewRestorable() {
+        lockRead();
+        try {
+            super.viewRestorable();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void viewRestored() {
+        lockRead();
+        try {
+            super.viewRestored();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void saveTitles(String filename) {
+        lockRead();
+        try {
+            super.saveTitles(filename);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void saveSnapshot(String filename) {
+        lockRead();
+        try {
+            super.saveSnapshot(filename);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    long export(TitleSink sink) throws IOException {
+        lockRead();
+        try {
+            return super.export(sink);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    long exportState(TitleSink sink) throws IOException {
+        lockRead();
+        try {
+            return super.exportState(sink);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lockRead();
+        try {
+            return super.toString();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        lockWrite();
+        try {
+            super.ensureCapacity(capacity);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void readTitles(String filename) {
+        lockWrite();
+        try {
+            super.readTitles(filename);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void readTitlesParallel(String filename) {
+        lockWrite();
+        try {
+            super.readTitlesParallel(filename);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void loadSnapshot(String filename) {
+        lockWrite();
+        try {
+            super.loadSnapshot(filename);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void openJournal(String filename, long threshold) {
+        lockWrite();
+        try {
+            super.openJournal(filename, threshold);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void closeJournal() {
+        lockWrite();
+        try {
+            super.closeJournal();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public boolean removeTitle(String c) {
+        lockWrite();
+        try {
+            return super.removeTitle(c);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public boolean addTitle(Title t) {
+        lockWrite();
+        try {
+            return super.addTitle(t);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public int addTitles(Collection<Title> c) {
+        lockWrite();
+        try {
+            return super.addTitles(c);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public boolean addRestoredTitle(RTitle rt) {
+        lockWrite();
+        try {
+            return super.addRestoredTitle(rt);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void sort() {
+        lockWrite();
+        try {
+            super.sort();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void restore() {
+        lockWrite();
+        try {
+            super.restore();
+        } finally {
+            unlock();
+        }
+    }
+}
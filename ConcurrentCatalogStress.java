@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class ConcurrentCatalogStress to show how the reads of a ConcurrentCatalog
+ * scale with the number of reader threads while a writer keeps changing it.
+ * For 1, 2, 4 ... up to the number of cores readers, one writer adds and
+ * removes titles in a loop while the readers look up call numbers (most of
+ * them through the optimistic read) and titles (through the read lock).
+ * Each round prints the reads per second in total and per reader, the
+ * speedup over one reader, and the writes per second.
+ * Readers also check what they read: titles that are never removed must
+ * always be found, with the right call number, and the count must stay
+ * within the titles the writer can have added. Any failed check is reported
+ * and makes the program exit with status 1.
+ * Usage: java ConcurrentCatalogStress [--titles n] [--threads n] [--seconds s]
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class ConcurrentCatalogStress {
+    private static final long SEED = 42;
+    // Reads done between two looks at the clock
+    private static final int BATCH = 1024;
+    // Titles the writer adds before removing them again
+    private static final int WRITER_WINDOW = 100;
+    // Call numbers the writer cycles through
+    private static final int WRITER_POOL = 10_000;
+
+    // Data members
+    private final ConcurrentCatalog catalog;
+    private final String[] callNumbers;
+    private final String[] names;
+    private final String[] writerCallNumbers;
+    private final int count;
+    private final long nanos;
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Constructor with the catalog to stress
+     * @param catalog the catalog, already loaded
+     * @param seconds how long each round runs
+     */
+    public ConcurrentCatalogStress(ConcurrentCatalog catalog, double seconds) {
+        this.catalog = catalog;
+        this.count = catalog.getCount();
+        this.nanos = (long) (seconds * 1e9);
+        List<String> c = new ArrayList<>();
+        List<String> t = new ArrayList<>();
+        for (Title title : catalog.snapshot()) {
+            c.add(title.getCallN());
+            t.add(title.getTitle());
+        }
+        callNumbers = c.toArray(new String[0]);
+        names = t.toArray(new String[0]);
+        writerCallNumbers = writerCallNumbers(new HashSet<>(c));
+    }
+
+    // Picks the call numbers only the writer uses: most of them of the usual
+    // B-ddd-ddd-ddd form, which the call number index packs into longs, and
+    // every fourth one of a form it cannot pack, so both paths are exercised
+    private static String[] writerCallNumbers(Set<String> used) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        String[] result = new String[WRITER_POOL];
+        for (int i = 0; i < WRITER_POOL; i++) {
+            if (i % 4 == 3) {
+                result[i] = String.format("W-%09d", i);
+                continue;
+            }
+            String c;
+            do {
+                int n = random.nextInt(1_000_000_000);
+                c = String.format("B-%03d-%03d-%03d", n / 1_000_000, n / 1000 % 1000, n % 1000);
+            } while (!used.add(c));
+            result[i] = c;
+        }
+        return result;
+    }
+
+    /**
+     * Main method to run the stress test.
+     *
+     * @param args the options
+     * @throws Exception if the catalog cannot be generated or a thread is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int titles = 100_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double seconds = 2;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--titles":
+                    titles = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.out.println("Usage: java ConcurrentCatalogStress [--titles n] [--threads n] [--seconds s]");
+                    return;
+            }
+        }
+        ConcurrentCatalog catalog = load(titles);
+        ConcurrentCatalogStress stress = new ConcurrentCatalogStress(catalog, seconds);
+        System.out.printf("%d titles, 1 writer, %.1f s per round%n", catalog.getCount(), seconds);
+        System.out.printf("%-8s %15s %15s %8s %12s%n", "readers", "reads/s", "reads/s/reader", "speedup", "writes/s");
+        double base = 0;
+        for (int r = 1; r <= threads; r = r < threads && r * 2 > threads ? threads : r * 2) {
+            double[] round = stress.round(r);
+            if (base == 0) {
+                base = round[0];
+            }
+            System.out.printf("%-8d %15.0f %15.0f %8.2f %12.0f%n", r, round[0], round[0] / r, round[0] / base, round[1]);
+        }
+        if (stress.errors.get() > 0) {
+            System.out.println(stress.errors.get() + " failed check(s)");
+            System.exit(1);
+        }
+    }
+
+    // Generates a catalog and loads it
+    private static ConcurrentCatalog load(int titles) throws IOException {
+        Path file = Files.createTempFile("catalog-stress", ".txt");
+        try {
+            new CatalogGenerator(SEED).restoredShare(0).writeText(file.toString(), titles);
+            ConcurrentCatalog catalog = new ConcurrentCatalog(titles);
+            catalog.readTitles(file.toString());
+            return catalog;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Runs one round: a writer and a number of readers for the round time.
+     *
+     * @param readers the number of reader threads
+     * @return the reads per second and the writes per second
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public double[] round(int readers) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(readers + 1);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong writes = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> run(start, done, () -> writes.addAndGet(write())), "stress-writer"));
+        for (int r = 0; r < readers; r++) {
+            long seed = SEED + r;
+            threads.add(new Thread(() -> run(start, done, () -> reads.addAndGet(read(seed))), "stress-reader-" + r));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        return new double[] {reads.get() / elapsed, writes.get() / elapsed};
+    }
+
+    // Runs the body of a thread once every thread is ready
+    private static void run(CountDownLatch start, CountDownLatch done, Runnable body) {
+        try {
+            start.await();
+            body.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            done.countDown();
+        }
+    }
+
+    // Adds and removes titles until the round ends, and returns how many changes were made
+    private long write() {
+        long deadline = System.nanoTime() + nanos;
+        long n = 0;
+        int next = 0;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < WRITER_WINDOW; i++) {
+                catalog.addTitle(new Book(writerCallN(next + i), "Stress Title", "Stress Publisher", 2000, 1,
+                        "Stress Author", "9780000000002"));
+            }
+            for (int i = 0; i < WRITER_WINDOW; i++) {
+                if (!catalog.removeTitle(writerCallN(next + i))) {
+                    fail("writer could not remove " + writerCallN(next + i));
+                }
+            }
+            next += WRITER_WINDOW;
+            n += 2 * WRITER_WINDOW;
+        }
+        return n;
+    }
+
+    // Returns a call number only the writer uses
+    private String writerCallN(int i) {
+        return writerCallNumbers[i % WRITER_POOL];
+    }
+
+    // Reads until the round ends, checking the results, and returns how many reads were done
+    private long read(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long deadline = System.nanoTime() + nanos;
+        long n = 0;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < BATCH; i++) {
+                int k = random.nextInt(callNumbers.length);
+                if (i % 256 == 0) {
+                    Title[] found = catalog.findTitle(names[k]);
+                    if (found == null) {
+                        fail("title not found: " + names[k]);
+                    }
+                } else {
+                    Title t = catalog.findCallN(callNumbers[k]);
+                    if (t == null || !t.getCallN().equals(callNumbers[k])) {
+                        fail("call number not found: " + callNumbers[k]);
+                    }
+                }
+            }
+            int c = catalog.getCount();
+            if (c < count || c > count + WRITER_WINDOW) {
+                fail("count out of range: " + c);
+            }
+            n += BATCH;
+        }
+        return n;
+    }
+
+    // Reports a failed check
+    private void fail(String message) {
+        if (errors.incrementAndGet() <= 10) {
+            System.out.println("FAILED: " + message);
+        }
+    }
+}
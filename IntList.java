@@ -0,0 +1,82 @@
+import java.util.Arrays;
+
+/**
+ * Class IntList to model a growable list of primitive ints.
+ * The catalog indexes use it to store the slots of titles without boxing.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class IntList {
+    // Data members
+    private int[] elements;
+    private int size;
+
+    /**
+     * Default constructor that creates an empty list.
+     */
+    public IntList() {
+        this(4);
+    }
+
+    /**
+     * Constructor with an initial capacity.
+     * 
+     * @param capacity the number of ints the list can hold before growing
+     */
+    public IntList(int capacity) {
+        elements = new int[Math.max(capacity, 1)];
+        size = 0;
+    }
+
+    /**
+     * Adds an int at the end of the list.
+     * 
+     * @param value the int to add
+     */
+    public void add(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length << 1);
+        }
+        elements[size] = value;
+        size++;
+    }
+
+    /**
+     * Returns the int at a position.
+     * 
+     * @param index the position in the list
+     * @return the int at the position
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return elements[index];
+    }
+
+    /**
+     * Returns the number of ints in the list.
+     * 
+     * @return the size of the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every int from the list, keeping its capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns a copy of the list as an array.
+     * 
+     * @return an array with the ints of the list
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * This class represents the InvalidTitleRecord, extending the Exception class.
+ * It is thrown when a line of a titles file cannot be parsed.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class InvalidTitleRecord extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    // Number of the line that could not be parsed
+    private final long line;
+    // Description of the problem, without the line number
+    private final String detail;
+
+    /**
+     * Constructor with two parameters
+     * @param line number of the line that could not be parsed, starting at 1
+     * @param message description of the problem
+     */
+    public InvalidTitleRecord(long line, String message) {
+        super("Invalid record at line " + line + ": " + message);
+        this.line = line;
+        this.detail = message;
+    }
+
+    /**
+     * Accessor for the line number
+     * @return number of the line that could not be parsed
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Accessor for the description of the problem
+     * @return description of the problem, without the line number
+     */
+    public String getDetail() {
+        return detail;
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Class IsbnIndex to index the slots of a catalog by ISBN.
+ * ISBNs are normalized first: hyphens and spaces are dropped and ISBN-10s are
+ * turned into the matching ISBN-13, so every way of writing an ISBN finds the
+ * same books. Normalized ISBNs made only of digits are kept as primitive long
+ * keys in a LongIntMap; any other string falls back to a HashMap so it can
+ * still be found.
+ * Posting lists keep slots in the order they were added, and may still hold
+ * slots whose titles were removed; callers skip those.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class IsbnIndex {
+    /**
+     * Key returned for an ISBN that cannot be stored as a long.
+     */
+    public static final long INVALID = -1L;
+
+    // Longest run of digits that still fits in a key beside its length
+    private static final int MAX_DIGITS = 17;
+
+    // Data members
+    private LongIntMap encoded;
+    private HashMap<String, Integer> other;
+    private List<IntList> postings;
+
+    /**
+     * Default constructor that creates an empty index.
+     */
+    public IsbnIndex() {
+        encoded = new LongIntMap();
+        other = new HashMap<>();
+        postings = new ArrayList<>();
+    }
+
+    /**
+     * Removes the hyphens and spaces of an ISBN and turns an ISBN-10 into
+     * the matching ISBN-13.
+     * 
+     * @param isbn the ISBN as written
+     * @return the normalized ISBN
+     */
+    public static String normalize(String isbn) {
+        StringBuilder s = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char ch = isbn.charAt(i);
+            if (ch != '-' && ch != ' ') {
+                s.append(Character.toUpperCase(ch));
+            }
+        }
+        if (s.length() == 10 && isDigits(s, 9) && (Character.isDigit(s.charAt(9)) || s.charAt(9) == 'X')) {
+            // Same book under the 978 prefix, with the ISBN-13 check digit
+            s.setLength(9);
+            s.insert(0, "978");
+            int sum = 0;
+            for (int i = 0; i < 12; i++) {
+                sum += (s.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+            }
+            s.append((10 - sum % 10) % 10);
+        }
+        return s.toString();
+    }
+
+    /**
+     * Returns the long key of a normalized ISBN. The length is kept in the key
+     * so leading zeros still tell ISBNs apart.
+     * 
+     * @param isbn the normalized ISBN
+     * @return the key, or INVALID if the ISBN is not a short run of digits
+     */
+    public static long encode(String isbn) {
+        if (isbn.isEmpty() || isbn.length() > MAX_DIGITS || !isDigits(isbn, isbn.length())) {
+            return INVALID;
+        }
+        return Long.parseLong(isbn) * 32 + isbn.length();
+    }
+
+    // Checks that the first n characters are digits
+    private static boolean isDigits(CharSequence s, int n) {
+        for (int i = 0; i < n; i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the slot of a book to the index.
+     * 
+     * @param isbn the ISBN of the book, which may be null
+     * @param slot the slot of the book in the catalog
+     */
+    public void add(String isbn, int slot) {
+        if (isbn == null) {
+            return;
+        }
+        String n = normalize(isbn);
+        long code = encode(n);
+        int p = code != INVALID ? encoded.get(code) : other.getOrDefault(n, LongIntMap.NO_VALUE);
+        if (p == LongIntMap.NO_VALUE) {
+            p = postings.size();
+            postings.add(new IntList(1));
+            if (code != INVALID) {
+                encoded.put(code, p);
+            } else {
+                other.put(n, p);
+            }
+        }
+        postings.get(p).add(slot);
+    }
+
+    /**
+     * Returns the slots of the books with an ISBN.
+     * 
+     * @param isbn the ISBN, written any way
+     * @return the slots of the books, or null if the ISBN is not indexed
+     */
+    public IntList get(String isbn) {
+        String n = normalize(isbn);
+        long code = encode(n);
+        int p = code != INVALID ? encoded.get(code) : other.getOrDefault(n, LongIntMap.NO_VALUE);
+        return p == LongIntMap.NO_VALUE ? null : postings.get(p);
+    }
+
+    /**
+     * Removes every ISBN from the index.
+     */
+    public void clear() {
+        encoded.clear();
+        other.clear();
+        postings.clear();
+    }
+}
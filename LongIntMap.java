@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+/**
+ * Class LongIntMap to map primitive long keys to primitive int values.
+ * It uses open addressing with linear probing, so entries need no objects
+ * and lookups never box their keys.
+ * Keys must not be Long.MIN_VALUE, which marks an empty slot, and values
+ * must not be NO_VALUE, which is returned for missing keys.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class LongIntMap {
+    /**
+     * Value returned when a key is not in the map.
+     */
+    public static final int NO_VALUE = -1;
+
+    // Marker for an empty slot in the keys array
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    // Data members
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Default constructor that creates an empty map.
+     */
+    public LongIntMap() {
+        this(16);
+    }
+
+    /**
+     * Constructor with an expected number of entries.
+     * 
+     * @param expected the number of entries the map should hold without growing
+     */
+    public LongIntMap(int expected) {
+        allocate(tableSize(expected));
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     * 
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value of a key.
+     * 
+     * @param key the key to look up
+     * @return the value of the key, or NO_VALUE if the key is not in the map
+     */
+    public int get(long key) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Checks if a key is in the map.
+     * 
+     * @param key the key to look up
+     * @return true if the key is in the map, false otherwise
+     */
+    public boolean containsKey(long key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value.
+     * 
+     * @param key the key
+     * @param value the value
+     * @return the previous value of the key, or NO_VALUE if there was none
+     */
+    public int put(long key, int value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * Maps a key to a value only if the key is not already in the map.
+     * 
+     * @param key the key
+     * @param value the value
+     * @return the current value of the key, or NO_VALUE if the value was added
+     */
+    public int putIfAbsent(long key, int value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * Removes a key from the map.
+     * 
+     * @param key the key to remove
+     * @return the value the key had, or NO_VALUE if it was not in the map
+     */
+    public int remove(long key) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                int old = values[i];
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Removes every entry from the map, keeping its capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the map's arrays.
+     * 
+     * @return the size of the keys and values arrays in bytes
+     */
+    public long memoryBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    // Adds or replaces an entry
+    private int put(long key, int value, boolean replace) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Reserved key: " + key);
+        }
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                int old = values[i];
+                if (replace) {
+                    values[i] = value;
+                }
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        // Keep the load factor at or below 1/2
+        if (size > (mask + 1) >> 1) {
+            rehash(keys.length << 1);
+        }
+        return NO_VALUE;
+    }
+
+    // Closes the gap left by a removed entry so probe chains stay unbroken
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            long k = keys[i];
+            if (k == EMPTY) {
+                break;
+            }
+            int home = slot(k);
+            // Move the entry back if its home slot is not between the gap and i
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = k;
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY;
+    }
+
+    // Returns the home slot of a key
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // Moves every entry into a table of the given size
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                while (keys[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    // Allocates empty arrays of the given power-of-two size
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    // Returns the power-of-two table size for an expected number of entries
+    private static int tableSize(int expected) {
+        int capacity = 16;
+        while (capacity >> 1 < expected && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,507 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class MappedCatalog to keep a catalog in a memory-mapped file instead of the heap.
+ * The file holds a header, a fixed number of fixed-width record slots, a call
+ * number hash table, a table of year chains and a string heap:
+ * <pre>
+ *   header    magic, version, capacity, slots used, titles, heap end, buckets
+ *   records   capacity slots of RECORD_SIZE bytes
+ *   call      buckets ints, each the first slot of a chain of equal hashes
+ *   years     YEARS first and last slots of the chain of each year
+ *   heap      length-prefixed UTF-8 strings, growing with the file
+ * </pre>
+ * Slots and chains are stored as slot + 1, so 0 ends a chain.
+ * The file is mapped in segments of up to 1 GB, so opening it only reads the
+ * header and maps the segments, however many titles it holds; the pages are
+ * loaded by the operating system as they are touched and do not count
+ * against the heap. Title objects are built only when a lookup returns them.
+ * Every change is written straight into the mapping; force makes it durable.
+ * A new record is complete and counted before it is linked into its chains,
+ * so if the process dies in the middle of addTitle, no chain points at a
+ * half-written slot, and open links the last record if the process died
+ * before that. This only covers a crash of the process, whose writes to the
+ * mapping the operating system still completes. After an operating system
+ * crash or power loss, only what the last force wrote is safe: pages changed
+ * since then may reach the disk in any order, or not at all.
+ * Slots are never reused: removed titles leave an empty slot behind, which
+ * the chains skip, and the capacity is fixed when the file is created.
+ * A MappedCatalog is a standalone store for the core operations (adding,
+ * removing, finding by call number and year, and listing titles); it is not
+ * a backend for Catalog, whose other indexes, queries, restored titles and
+ * journal still need the titles on the heap.
+ * A MappedCatalog is not thread-safe.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class MappedCatalog implements Closeable {
+    /**
+     * First four bytes of every mapped catalog, "CATM" in ASCII.
+     */
+    public static final int MAGIC = 0x4341544D;
+    /**
+     * Version of the file format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    // Header fields
+    private static final int HEADER_SIZE = 64;
+    private static final int CAPACITY = 8;
+    private static final int SIZE = 16;
+    private static final int COUNT = 24;
+    private static final int HEAP_END = 32;
+    private static final int BUCKETS = 40;
+
+    // Record fields; every int and long is aligned so it never straddles a segment
+    private static final int RECORD_SIZE = 72;
+    private static final int TYPE = 0;
+    private static final int YEAR = 4;
+    private static final int COPIES = 8;
+    private static final int MONTH = 12;
+    private static final int ISSUE = 16;
+    private static final int NEXT_CALL = 20;
+    private static final int NEXT_YEAR = 24;
+    private static final int CALL_N = 32;
+    private static final int TITLE = 40;
+    private static final int PUBLISHER = 48;
+    private static final int AUTHOR = 56;
+    private static final int ISBN = 64;
+
+    // Years with a chain of their own; earlier and later years share the first and last chain
+    private static final int YEARS = 4096;
+    // Heap reference of a null string
+    private static final long NULL = -1L;
+    // Smallest amount the file grows by
+    private static final long MIN_GROWTH = 1L << 26;
+    // Most call number buckets, so the count stays a power of two that fits an int
+    private static final int MAX_BUCKETS = 1 << 30;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT = 1L << SEGMENT_SHIFT;
+
+    // Data members
+    private final FileChannel channel;
+    private MappedByteBuffer[] segments;
+    private long fileSize;
+    private final int capacity;
+    private final int buckets;
+    private final long callStart;
+    private final long yearStart;
+
+    // Opens the file and works out where its regions start
+    private MappedCatalog(FileChannel channel, int capacity, int buckets) throws IOException {
+        this.channel = channel;
+        this.capacity = capacity;
+        this.buckets = buckets;
+        callStart = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        yearStart = callStart + (long) buckets * Integer.BYTES;
+        segments = new MappedByteBuffer[0];
+        fileSize = channel.size();
+        map();
+    }
+
+    /**
+     * Creates a new, empty mapped catalog, replacing any file of the same name.
+     *
+     * @param filename the name of the file
+     * @param capacity the largest number of titles the file will ever hold
+     * @return the open catalog
+     * @throws IOException if the file cannot be created
+     */
+    public static MappedCatalog create(String filename, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int buckets = capacity >= MAX_BUCKETS / 2 ? MAX_BUCKETS : Integer.highestOneBit(capacity) * 2;
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long heapStart = HEADER_SIZE + (long) capacity * RECORD_SIZE + (long) buckets * Integer.BYTES
+                    + 2L * YEARS * Integer.BYTES;
+            // The new file reads as zeros, which is an empty record area and empty tables
+            channel.write(ByteBuffer.wrap(new byte[1]), heapStart + MIN_GROWTH - 1);
+            MappedCatalog m = new MappedCatalog(channel, capacity, buckets);
+            m.putInt(0, MAGIC);
+            m.putInt(4, VERSION);
+            m.putLong(CAPACITY, capacity);
+            m.putLong(SIZE, 0);
+            m.putLong(COUNT, 0);
+            m.putLong(HEAP_END, heapStart);
+            m.putLong(BUCKETS, buckets);
+            return m;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing mapped catalog. Only the header and the last record are read.
+     *
+     * @param filename the name of the file
+     * @return the open catalog
+     * @throws IOException if the file cannot be opened or is not a mapped catalog
+     */
+    public static MappedCatalog open(String filename) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // Keep reading until the header is full or the file ends
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a mapped catalog: " + filename);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported mapped catalog version " + header.getInt(4));
+            }
+            MappedCatalog m = new MappedCatalog(channel, (int) header.getLong(CAPACITY), (int) header.getLong(BUCKETS));
+            // The process may have died in addTitle before it linked its record
+            long size = m.getLong(SIZE);
+            if (size > 0 && m.get(record((int) size - 1) + TYPE) != 0) {
+                m.link((int) size - 1);
+            }
+            return m;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Adds a Title object to the file
+    /**
+     * Adds a Title object to the catalog.
+     *
+     * @param t the Title object to add
+     * @return true once the title has been added
+     * @throws IllegalStateException if the catalog is at its capacity; nothing
+     *         is written then
+     */
+    public boolean addTitle(Title t) {
+        int slot = (int) getLong(SIZE);
+        // Check before writing anything, so a full catalog is left as it was
+        if (slot >= capacity) {
+            throw new IllegalStateException("Mapped catalog is full: " + capacity + " titles");
+        }
+        long r = record(slot);
+        putLong(r + CALL_N, putString(t.getCallN()));
+        putLong(r + TITLE, putString(t.getTitle()));
+        putLong(r + PUBLISHER, putString(t.getPublisher()));
+        putInt(r + YEAR, t.getYear());
+        putInt(r + COPIES, t.getCopies());
+        if (t instanceof Book) {
+            putLong(r + AUTHOR, putString(((Book) t).getAuthor()));
+            putLong(r + ISBN, putString(((Book) t).getISBN()));
+        } else {
+            putInt(r + MONTH, ((Periodical) t).getMonth());
+            putInt(r + ISSUE, ((Periodical) t).getIssue());
+        }
+        putInt(r + NEXT_CALL, 0);
+        putInt(r + NEXT_YEAR, 0);
+        // The type is written after the fields and the size after the type, so if
+        // the process dies, a slot only counts once the record is complete, and
+        // is linked only then
+        put(r + TYPE, t instanceof Book ? RecordCodec.BOOK : RecordCodec.PERIODICAL);
+        putLong(SIZE, slot + 1);
+        putLong(COUNT, getLong(COUNT) + 1);
+        link(slot);
+        return true;
+    }
+
+    // Appends a slot to the end of its call number and year chains, unless it is
+    // already there, so lookups return titles in the order they were added
+    private void link(int slot) {
+        long r = record(slot);
+        long link = callStart + (long) bucket(getString(getLong(r + CALL_N))) * Integer.BYTES;
+        for (int s = getInt(link); s != slot + 1; s = getInt(link)) {
+            if (s == 0) {
+                putInt(link, slot + 1);
+                break;
+            }
+            link = record(s - 1) + NEXT_CALL;
+        }
+        long year = yearStart + (long) yearChain(getInt(r + YEAR)) * 2 * Integer.BYTES;
+        int last = getInt(year + Integer.BYTES);
+        if (last != slot + 1) {
+            putInt(last == 0 ? year : record(last - 1) + NEXT_YEAR, slot + 1);
+            putInt(year + Integer.BYTES, slot + 1);
+        }
+    }
+
+    // Remove a Title object from the file
+    /**
+     * Removes a Title object from the catalog by its call number.
+     *
+     * @param c the call number of the title to remove
+     * @return true if the title was successfully removed, false otherwise
+     */
+    public boolean removeTitle(String c) {
+        byte[] key = c.getBytes(StandardCharsets.UTF_8);
+        long link = callStart + (long) bucket(c) * Integer.BYTES;
+        for (int s = getInt(link); s != 0; s = getInt(link)) {
+            long r = record(s - 1);
+            if (get(r + TYPE) != 0 && matches(getLong(r + CALL_N), key)) {
+                // Clear the type first, so the slot stops counting before it is unlinked
+                put(r + TYPE, (byte) 0);
+                putLong(COUNT, getLong(COUNT) - 1);
+                putInt(link, getInt(r + NEXT_CALL));
+                return true;
+            }
+            link = r + NEXT_CALL;
+        }
+        return false;
+    }
+
+    // Finds and returns a Title object with a call number
+    /**
+     * Finds and returns a Title object with a specified call number.
+     *
+     * @param c the call number to search for
+     * @return a new Title object read from the file, or null if not found
+     */
+    public Title findCallN(String c) {
+        byte[] key = c.getBytes(StandardCharsets.UTF_8);
+        for (int s = getInt(callStart + (long) bucket(c) * Integer.BYTES); s != 0; s = getInt(record(s - 1) + NEXT_CALL)) {
+            long r = record(s - 1);
+            if (get(r + TYPE) != 0 && matches(getLong(r + CALL_N), key)) {
+                return title(s - 1);
+            }
+        }
+        return null;
+    }
+
+    // Finds and returns an array of Title objects with a specified year
+    /**
+     * Finds and returns an array of Title objects with a specified year.
+     *
+     * @param year the year to search for
+     * @return an array of new Title objects read from the file, or null if not found
+     */
+    public Title[] findYear(int year) {
+        List<Title> found = new ArrayList<>();
+        long head = yearStart + (long) yearChain(year) * 2 * Integer.BYTES;
+        for (int s = getInt(head); s != 0; s = getInt(record(s - 1) + NEXT_YEAR)) {
+            long r = record(s - 1);
+            if (get(r + TYPE) != 0 && getInt(r + YEAR) == year) {
+                found.add(title(s - 1));
+            }
+        }
+        return found.isEmpty() ? null : found.toArray(new Title[0]);
+    }
+
+    /**
+     * Returns the number of titles in the catalog.
+     *
+     * @return the number of titles
+     */
+    public int getCount() {
+        return (int) getLong(COUNT);
+    }
+
+    /**
+     * Returns the size of the file, which is what the catalog occupies
+     * outside the heap.
+     *
+     * @return the size of the file in bytes
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Writes every change made through the mapping to the disk.
+     */
+    public void force() {
+        for (MappedByteBuffer s : segments) {
+            s.force();
+        }
+    }
+
+    /**
+     * Forces the changes to the disk and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        segments = new MappedByteBuffer[0];
+        channel.close();
+    }
+
+    /**
+     * Returns a string with all the titles of the catalog, like Catalog.toString.
+     *
+     * @return the column headings and one line per title
+     */
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder(Catalog.HEADER);
+        long size = getLong(SIZE);
+        for (int s = 0; s < size; s++) {
+            if (get(record(s) + TYPE) != 0) {
+                str.append('\n').append(title(s).toString());
+            }
+        }
+        return str.toString();
+    }
+
+    // Builds the Title object of a slot
+    private Title title(int slot) {
+        long r = record(slot);
+        String callN = getString(getLong(r + CALL_N));
+        String title = getString(getLong(r + TITLE));
+        String publisher = getString(getLong(r + PUBLISHER));
+        if (get(r + TYPE) == RecordCodec.BOOK) {
+            return new Book(callN, title, publisher, getInt(r + YEAR), getInt(r + COPIES),
+                    getString(getLong(r + AUTHOR)), getString(getLong(r + ISBN)));
+        }
+        return new Periodical(callN, title, publisher, getInt(r + YEAR), getInt(r + COPIES),
+                getInt(r + MONTH), getInt(r + ISSUE));
+    }
+
+    // Returns the file position of a slot
+    private static long record(int slot) {
+        return HEADER_SIZE + (long) slot * RECORD_SIZE;
+    }
+
+    // Returns the hash bucket of a call number
+    private int bucket(String c) {
+        int h = c.hashCode() * 0x9E3779B1;
+        return (h ^ (h >>> 16)) & (buckets - 1);
+    }
+
+    // Returns the chain of a year
+    private static int yearChain(int year) {
+        return Math.min(Math.max(year, 0), YEARS - 1);
+    }
+
+    // Checks if the string at a heap reference has the given bytes
+    private boolean matches(long ref, byte[] key) {
+        if (ref == NULL || getInt(ref) != key.length) {
+            return false;
+        }
+        return Arrays.equals(getBytes(ref + Integer.BYTES, key.length), key);
+    }
+
+    // Appends a string to the heap and returns its reference
+    private long putString(String s) {
+        if (s == null) {
+            return NULL;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        long ref = getLong(HEAP_END);
+        // Keep the next length aligned so it never straddles a segment
+        long end = (ref + Integer.BYTES + b.length + 3) & ~3L;
+        if (end > fileSize) {
+            grow(end);
+        }
+        putInt(ref, b.length);
+        putBytes(ref + Integer.BYTES, b);
+        putLong(HEAP_END, end);
+        return ref;
+    }
+
+    // Reads the string at a heap reference
+    private String getString(long ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        return new String(getBytes(ref + Integer.BYTES, getInt(ref)), StandardCharsets.UTF_8);
+    }
+
+    // Grows the file so it holds at least a number of bytes, and maps the new part
+    private void grow(long needed) {
+        long size = Math.max(needed, fileSize + Math.max(fileSize / 4, MIN_GROWTH));
+        try {
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+            fileSize = size;
+            map();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot grow the mapped catalog", e);
+        }
+    }
+
+    // Maps every segment of the file, keeping the ones that did not change
+    private void map() throws IOException {
+        int n = (int) ((fileSize + SEGMENT - 1) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] s = Arrays.copyOf(segments, n);
+        for (int i = 0; i < n; i++) {
+            long start = i * SEGMENT;
+            long length = Math.min(SEGMENT, fileSize - start);
+            if (s[i] == null || s[i].capacity() != length) {
+                s[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+            }
+        }
+        segments = s;
+    }
+
+    // Reads and writes primitive values at file positions
+    private MappedByteBuffer segment(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(long position) {
+        return (int) (position & (SEGMENT - 1));
+    }
+
+    private byte get(long position) {
+        return segment(position).get(offset(position));
+    }
+
+    private void put(long position, byte value) {
+        segment(position).put(offset(position), value);
+    }
+
+    private int getInt(long position) {
+        return segment(position).getInt(offset(position));
+    }
+
+    private void putInt(long position, int value) {
+        segment(position).putInt(offset(position), value);
+    }
+
+    private long getLong(long position) {
+        return segment(position).getLong(offset(position));
+    }
+
+    private void putLong(long position, long value) {
+        segment(position).putLong(offset(position), value);
+    }
+
+    // Byte runs may cross from one segment into the next
+    private byte[] getBytes(long position, int length) {
+        byte[] b = new byte[length];
+        int done = 0;
+        while (done < length) {
+            ByteBuffer s = segment(position + done).duplicate();
+            s.position(offset(position + done));
+            int n = Math.min(length - done, s.remaining());
+            s.get(b, done, n);
+            done += n;
+        }
+        return b;
+    }
+
+    private void putBytes(long position, byte[] b) {
+        int done = 0;
+        while (done < b.length) {
+            ByteBuffer s = segment(position + done).duplicate();
+            s.position(offset(position + done));
+            int n = Math.min(b.length - done, s.remaining());
+            s.put(b, done, n);
+            done += n;
+        }
+    }
+}
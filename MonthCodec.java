@@ -0,0 +1,80 @@
+/**
+ * Class MonthCodec to convert periodical months between names and numbers.
+ * Months are numbered from 1 (January) to 12 (December); 0 means unknown.
+ * The month names are shared by every caller, so decoding and rendering
+ * a month allocates nothing and never throws.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public final class MonthCodec {
+    /**
+     * Name written for a month that is not between 1 and 12.
+     */
+    public static final String UNKNOWN = "none";
+
+    // Month names, January first
+    private static final String[] NAMES = {"January", "February", "March", "April", "May", "June", "July", "August", "September", "October", "November", "December"};
+
+    /**
+     * Private constructor, the class only has static methods.
+     */
+    private MonthCodec() {
+    }
+
+    /**
+     * Converts a month written as a name or a number into its number.
+     * 
+     * @param m the month, such as "March" or "3"
+     * @return the month number from 1 to 12, or 0 if m is not a month
+     */
+    public static int decode(String m) {
+        return decode(m, 0, m.length());
+    }
+
+    /**
+     * Converts a month written as a name or a number in part of a string into its number.
+     * 
+     * @param s the string holding the month
+     * @param start the index of the first char of the month
+     * @param end the index after the last char of the month
+     * @return the month number from 1 to 12, or 0 if the chars are not a month
+     */
+    public static int decode(String s, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return 0;
+        }
+        char first = s.charAt(start);
+        if (first >= '0' && first <= '9') {
+            if (length > 2) {
+                return 0;
+            }
+            int month = first - '0';
+            if (length == 2) {
+                char second = s.charAt(start + 1);
+                if (second < '0' || second > '9') {
+                    return 0;
+                }
+                month = month * 10 + (second - '0');
+            }
+            return month >= 1 && month <= 12 ? month : 0;
+        }
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].length() == length && s.regionMatches(start, NAMES[i], 0, length)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the name of a month.
+     * 
+     * @param month the month number from 1 to 12
+     * @return the name of the month, or UNKNOWN if the number is not a month
+     */
+    public static String name(int month) {
+        return month >= 1 && month <= 12 ? NAMES[month - 1] : UNKNOWN;
+    }
+}
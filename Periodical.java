@@ -46,8 +46,7 @@ public class Periodical extends Title{
      * @return formatted string with the object attributes
      */
     public String toString(){
-        String[] months = {"January", "February", "March", "April", "May", "June", "July", "August", "September", "October", "November", "December"};
-        String str = super.toString() + String.format("\t%-15s\t%-10d", months[month], issue);
+        String str = super.toString() + String.format("\t%-15s\t%-10d", MonthCodec.name(month), issue);
         return str;
     }
     /**
@@ -55,8 +54,7 @@ public class Periodical extends Title{
      * @return simply formatted string with the object attributes
      */
     public String simpleToString(){
-        String[] months = {"January", "February", "March", "April", "May", "June", "July", "August", "September", "October", "November", "December"};
-        return super.simpleToString() + "|" + months[month] + "|" + issue;
+        return super.simpleToString() + "|" + MonthCodec.name(month) + "|" + issue;
     }
     /**
      * Mutator for the month
@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Class RecordCodec to convert titles to and from the binary record format
+ * shared by catalog snapshots and the catalog journal.
+ * A record is a type tag ('B' or 'P'), a restored flag, the call number,
+ * title and publisher as length-prefixed UTF-8 strings (length -1 for null),
+ * the year and copies as ints, then the author and ISBN strings of a book or
+ * the month and issue ints of a periodical, and for a restored title its
+ * restoration date as an int epoch day.
+ * Records written with a StringDictionary hold the publisher and author as
+ * dictionary references instead: an int code for a string already written,
+ * -1 for null, or NEW_NAME followed by the string, which takes the next code.
+ * Writer and reader keep their dictionaries in step by seeing the records in
+ * the same order.
+ * Like TitleParser, a codec keeps the result of the last decode, so each
+ * thread needs its own.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class RecordCodec {
+    /**
+     * Type tags of the records.
+     */
+    public static final byte BOOK = 'B';
+    public static final byte PERIODICAL = 'P';
+    /**
+     * Dictionary reference marking a string written out for the first time.
+     */
+    public static final int NEW_NAME = -2;
+
+    // Data members
+    private byte[] scratch;
+    private LocalDate restorationDate;
+
+    /**
+     * Default constructor
+     */
+    public RecordCodec() {
+        scratch = new byte[256];
+    }
+
+    /**
+     * Encodes a title as a record.
+     * 
+     * @param t the title
+     * @param date the restoration date, or null if the title has not been restored
+     * @return the bytes of the record
+     */
+    public static byte[] encode(Title t, LocalDate date) {
+        return encode(t, date, null);
+    }
+
+    /**
+     * Encodes a title as a record, writing its publisher and author as
+     * references into a dictionary.
+     * 
+     * @param t the title
+     * @param date the restoration date, or null if the title has not been restored
+     * @param names the dictionary of the strings written so far, which gains any
+     *        new publisher or author, or null to write them as plain strings
+     * @return the bytes of the record
+     */
+    public static byte[] encode(Title t, LocalDate date, StringDictionary names) {
+        byte[] callN = utf8(t.getCallN());
+        byte[] title = utf8(t.getTitle());
+        byte[] publisher = utf8(t.getPublisher());
+        byte[] author = null;
+        byte[] isbn = null;
+        // With a dictionary, a new name takes a reference before its string; an old one only the reference
+        int ref = names == null ? 0 : 4;
+        int length = 2 + size(callN) + size(title) + ref + size(publisher) + 8;
+        if (t instanceof Book) {
+            author = utf8(((Book) t).getAuthor());
+            isbn = utf8(((Book) t).getISBN());
+            length += ref + size(author) + size(isbn);
+        } else {
+            length += 8;
+        }
+        if (date != null) {
+            length += 4;
+        }
+        ByteBuffer b = ByteBuffer.allocate(length);
+        b.put(t instanceof Book ? BOOK : PERIODICAL);
+        b.put((byte) (date != null ? 1 : 0));
+        put(b, callN);
+        put(b, title);
+        putName(b, t.getPublisher(), publisher, names);
+        b.putInt(t.getYear());
+        b.putInt(t.getCopies());
+        if (t instanceof Book) {
+            putName(b, ((Book) t).getAuthor(), author, names);
+            put(b, isbn);
+        } else {
+            b.putInt(((Periodical) t).getMonth());
+            b.putInt(((Periodical) t).getIssue());
+        }
+        if (date != null) {
+            b.putInt((int) date.toEpochDay());
+        }
+        return b.position() == length ? b.array() : Arrays.copyOf(b.array(), b.position());
+    }
+
+    // Writes a publisher or author as a plain string or as a dictionary reference
+    private static void putName(ByteBuffer b, String s, byte[] bytes, StringDictionary names) {
+        if (names == null) {
+            put(b, bytes);
+            return;
+        }
+        int code = names.find(s);
+        if (s == null || code != StringDictionary.NO_CODE) {
+            b.putInt(code);
+        } else {
+            names.code(s);
+            b.putInt(NEW_NAME);
+            put(b, bytes);
+        }
+    }
+
+    /**
+     * Decodes the record that starts at the position of a buffer.
+     * The buffer is left after the last byte read.
+     * 
+     * @param b the buffer holding the record
+     * @param end the position in the buffer where the record must end
+     * @return the decoded title
+     * @throws IOException if the record is corrupt
+     */
+    public Title decode(ByteBuffer b, int end) throws IOException {
+        return decode(b, end, null);
+    }
+
+    /**
+     * Decodes a record whose publisher and author are dictionary references.
+     * The buffer is left after the last byte read.
+     * 
+     * @param b the buffer holding the record
+     * @param end the position in the buffer where the record must end
+     * @param names the dictionary of the strings read so far, which gains any
+     *        new publisher or author, or null if they are plain strings
+     * @return the decoded title
+     * @throws IOException if the record is corrupt
+     */
+    public Title decode(ByteBuffer b, int end, StringDictionary names) throws IOException {
+        byte type = b.get();
+        boolean restored = b.get() != 0;
+        String callN = string(b, end);
+        String title = string(b, end);
+        String publisher = name(b, end, names);
+        int year = b.getInt();
+        int copies = b.getInt();
+        Title t;
+        if (type == BOOK) {
+            String author = name(b, end, names);
+            t = new Book(callN, title, publisher, year, copies, author, string(b, end));
+        } else if (type == PERIODICAL) {
+            t = new Periodical(callN, title, publisher, year, copies, b.getInt(), b.getInt());
+        } else {
+            throw new IOException("Unknown record type " + type);
+        }
+        restorationDate = restored ? LocalDate.ofEpochDay(b.getInt()) : null;
+        if (b.position() > end) {
+            throw new IOException("Record overruns its length");
+        }
+        return t;
+    }
+
+    /**
+     * Returns the restoration date of the last decoded record.
+     * 
+     * @return the restoration date, or null if the title has not been restored
+     */
+    public LocalDate getRestorationDate() {
+        return restorationDate;
+    }
+
+    // Reads a publisher or author written by putName
+    private String name(ByteBuffer b, int end, StringDictionary names) throws IOException {
+        if (names == null) {
+            return string(b, end);
+        }
+        int code = b.getInt();
+        if (code == NEW_NAME) {
+            return names.intern(string(b, end));
+        }
+        if (code < StringDictionary.NO_CODE || code >= names.size()) {
+            throw new IOException("Unknown string code " + code + " in record");
+        }
+        return names.get(code);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     * 
+     * @param b the buffer holding the string
+     * @param end the position in the buffer the string must end before
+     * @return the string, or null if it was written as null
+     * @throws IOException if the length runs past end
+     */
+    public String string(ByteBuffer b, int end) throws IOException {
+        int n = b.getInt();
+        if (n < 0) {
+            return null;
+        }
+        if (n > end - b.position()) {
+            throw new IOException("Corrupt string in record");
+        }
+        if (n > scratch.length) {
+            scratch = new byte[Math.max(n, scratch.length * 2)];
+        }
+        b.get(scratch, 0, n);
+        return new String(scratch, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a length-prefixed string, or length -1 for null.
+     * 
+     * @param b the buffer to write to
+     * @param s the UTF-8 bytes of the string, or null
+     */
+    public static void put(ByteBuffer b, byte[] s) {
+        if (s == null) {
+            b.putInt(-1);
+        } else {
+            b.putInt(s.length);
+            b.put(s);
+        }
+    }
+
+    /**
+     * Encodes a string as UTF-8.
+     * 
+     * @param s the string, or null
+     * @return the UTF-8 bytes of the string, or null
+     */
+    public static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of bytes a length-prefixed string takes.
+     * 
+     * @param s the UTF-8 bytes of the string, or null
+     * @return the size of the string with its length
+     */
+    public static int size(byte[] s) {
+        return 4 + (s == null ? 0 : s.length);
+    }
+}
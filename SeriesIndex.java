@@ -0,0 +1,114 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class SeriesIndex to keep the issues of each periodical in publication order.
+ * Every periodical title has a sorted map from (year, month, issue), packed
+ * into a long, to the issues published then, so finding the issue before or
+ * after another one takes O(log n).
+ * Unlike the slot indexes, the series hold the Periodical objects themselves,
+ * and removeTitle takes an issue out as soon as it is removed.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class SeriesIndex {
+    // Data members
+    private HashMap<String, TreeMap<Long, List<Periodical>>> series;
+
+    /**
+     * Default constructor that creates an empty index.
+     */
+    public SeriesIndex() {
+        series = new HashMap<>();
+    }
+
+    // Packs the position of an issue in its series into a long
+    private static long key(Periodical p) {
+        return ((long) p.getYear() << 36) | ((long) (p.getMonth() & 0xF) << 32) | (p.getIssue() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Adds an issue to its series.
+     * 
+     * @param p the issue
+     */
+    public void add(Periodical p) {
+        series.computeIfAbsent(p.getTitle(), k -> new TreeMap<>())
+              .computeIfAbsent(key(p), k -> new ArrayList<>(1))
+              .add(p);
+    }
+
+    /**
+     * Removes an issue from its series.
+     * 
+     * @param p the issue
+     */
+    public void remove(Periodical p) {
+        TreeMap<Long, List<Periodical>> issues = series.get(p.getTitle());
+        if (issues == null) {
+            return;
+        }
+        long k = key(p);
+        List<Periodical> same = issues.get(k);
+        if (same != null && same.remove(p)) {
+            if (same.isEmpty()) {
+                issues.remove(k);
+            }
+            if (issues.isEmpty()) {
+                series.remove(p.getTitle());
+            }
+        }
+    }
+
+    /**
+     * Returns the issue published right after another one of the same title.
+     * 
+     * @param p the issue
+     * @return the next issue, or null if p is the latest
+     */
+    public Periodical next(Periodical p) {
+        TreeMap<Long, List<Periodical>> issues = series.get(p.getTitle());
+        Map.Entry<Long, List<Periodical>> e = issues == null ? null : issues.higherEntry(key(p));
+        return e == null ? null : e.getValue().get(0);
+    }
+
+    /**
+     * Returns the issue published right before another one of the same title.
+     * 
+     * @param p the issue
+     * @return the previous issue, or null if p is the earliest
+     */
+    public Periodical previous(Periodical p) {
+        TreeMap<Long, List<Periodical>> issues = series.get(p.getTitle());
+        Map.Entry<Long, List<Periodical>> e = issues == null ? null : issues.lowerEntry(key(p));
+        return e == null ? null : e.getValue().get(0);
+    }
+
+    /**
+     * Returns every issue of a periodical title, ordered by year, month and issue.
+     * 
+     * @param title the periodical title
+     * @return the issues, which is empty if the title has none
+     */
+    public List<Periodical> get(String title) {
+        List<Periodical> result = new ArrayList<>();
+        TreeMap<Long, List<Periodical>> issues = series.get(title);
+        if (issues != null) {
+            for (List<Periodical> same : issues.values()) {
+                result.addAll(same);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes every issue from the index.
+     */
+    public void clear() {
+        series.clear();
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class SnapshotReader to load a binary catalog snapshot written by SnapshotWriter.
+ * The file is read through memory-mapped windows of up to 1 GB, so records
+ * are decoded straight from the page cache without read calls.
+ * Version 1 snapshots, version 2 snapshots, whose publishers and authors are
+ * dictionary references, and version 3 snapshots, which also name their
+ * journal segment, can all be read.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class SnapshotReader {
+    // Largest part of the file mapped at once
+    private static final long WINDOW = 1L << 30;
+    // Size of the header before version 3 added the journal segment
+    private static final int OLD_HEADER_SIZE = 24;
+
+    // Data members
+    private final String filename;
+    private FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long size;
+    private final RecordCodec codec;
+    // Publishers and authors read so far, or null for a version 1 snapshot
+    private StringDictionary names;
+    private long records;
+    private int segment;
+    private long nanos;
+
+    /**
+     * Constructor with one parameter
+     * @param filename the name of the snapshot file
+     */
+    public SnapshotReader(String filename) {
+        this.filename = filename;
+        codec = new RecordCodec();
+    }
+
+    /**
+     * Adds every title of the snapshot to a catalog.
+     * 
+     * @param catalog the catalog to load the titles into
+     * @return the number of records read
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public long load(Catalog catalog) throws IOException {
+        long start = System.nanoTime();
+        records = 0;
+        segment = 0;
+        try (FileChannel c = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            channel = c;
+            size = c.size();
+            if (size < OLD_HEADER_SIZE) {
+                throw new IOException("Not a catalog snapshot");
+            }
+            map(0);
+            int version = readVersion(window);
+            names = version == 1 ? null : new StringDictionary();
+            long titleCount = window.getLong();
+            long restoredCount = window.getLong();
+            if (version >= 3) {
+                ensure(8);
+                segment = (int) window.getLong();
+            }
+            catalog.ensureCapacity((int) Math.min(Integer.MAX_VALUE - 8, catalog.getCount() + titleCount));
+            for (long i = 0; i < titleCount + restoredCount; i++) {
+                try {
+                    readRecord(catalog);
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("Corrupt record " + records);
+                }
+                records++;
+            }
+        } finally {
+            channel = null;
+            window = null;
+            names = null;
+            nanos = System.nanoTime() - start;
+        }
+        return records;
+    }
+
+    /**
+     * Reads the last journal segment included in the snapshot, without
+     * loading its titles.
+     * 
+     * @return the number of the segment, or 0 if the snapshot does not name one
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public int readSegment() throws IOException {
+        try (FileChannel c = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SnapshotWriter.HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (c.read(header) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < OLD_HEADER_SIZE) {
+                throw new IOException("Not a catalog snapshot");
+            }
+            int version = readVersion(header);
+            header.position(OLD_HEADER_SIZE);
+            if (version < 3) {
+                return 0;
+            }
+            if (header.remaining() < 8) {
+                throw new IOException("Truncated snapshot");
+            }
+            return (int) header.getLong();
+        }
+    }
+
+    // Checks the magic number and returns the version of the snapshot
+    private static int readVersion(ByteBuffer header) throws IOException {
+        if (header.getInt() != SnapshotWriter.MAGIC) {
+            throw new IOException("Not a catalog snapshot");
+        }
+        int version = header.getInt();
+        if (version < 1 || version > SnapshotWriter.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        return version;
+    }
+
+    // Reads one record and adds it to the catalog
+    private void readRecord(Catalog catalog) throws IOException {
+        ensure(4);
+        int length = window.getInt();
+        if (length < 2) {
+            throw new IOException("Corrupt record " + records);
+        }
+        ensure(length);
+        int end = window.position() + length;
+        Title t = codec.decode(window, end, names);
+        if (codec.getRestorationDate() != null) {
+            catalog.addRestoredTitle(new RTitle(t, codec.getRestorationDate()));
+        } else {
+            catalog.addTitle(t);
+        }
+        window.position(end);
+    }
+
+    // Makes sure the next n bytes are inside the mapped window
+    private void ensure(int n) throws IOException {
+        long position = windowStart + window.position();
+        if (position + n > size) {
+            throw new IOException("Truncated snapshot");
+        }
+        if (window.remaining() < n) {
+            map(position);
+        }
+    }
+
+    // Maps the window that starts at a file position
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+    }
+
+    /**
+     * Returns the number of records read by the last load.
+     * 
+     * @return the number of records read
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the last journal segment included in the snapshot read by the last load.
+     * 
+     * @return the number of the segment, or 0 if the snapshot does not name one
+     */
+    public int getSegment() {
+        return segment;
+    }
+
+    /**
+     * Returns a summary of the last load.
+     * 
+     * @return the number of records and time of the last load
+     */
+    public String toString() {
+        return String.format("%d records in %.1f ms, %.0f records/s", records, nanos / 1e6, nanos == 0 ? 0 : records * 1e9 / nanos);
+    }
+}
@@ -0,0 +1,169 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class SnapshotWriter to stream titles into a binary catalog snapshot.
+ * A snapshot starts with a header (magic, version, number of titles and of
+ * restored titles) followed by one record per title: an int record length
+ * and the record in the RecordCodec format.
+ * Since version 2, publishers and authors are written once and then
+ * referred to by their dictionary code. Since version 3, the header also
+ * holds the last journal segment whose changes the snapshot includes.
+ * Records are written to a temporary file that replaces the target on commit.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class SnapshotWriter implements TitleSink, Closeable {
+    /**
+     * First four bytes of every snapshot, "CATS" in ASCII.
+     */
+    public static final int MAGIC = 0x43415453;
+    /**
+     * Version of the snapshot format written by this class.
+     */
+    public static final int VERSION = 3;
+    /**
+     * Size of the snapshot header in bytes.
+     */
+    public static final int HEADER_SIZE = 32;
+
+    // Size of the write buffer in bytes
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // Data members
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    private final StringDictionary names;
+    private long titleCount;
+    private long restoredCount;
+    private int segment;
+    private boolean committed;
+
+    /**
+     * Constructor that starts a new snapshot.
+     * 
+     * @param filename the name of the snapshot file to write
+     * @throws IOException if the temporary file cannot be created
+     */
+    public SnapshotWriter(String filename) throws IOException {
+        target = Paths.get(filename).toAbsolutePath();
+        temp = TitleWriter.createTemp(target);
+        channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        names = new StringDictionary();
+        // The counts and the segment are filled in by commit
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(0).putLong(0).putLong(0);
+    }
+
+    /**
+     * Writes a title that has not been restored.
+     * 
+     * @param t the title
+     * @throws IOException if the record cannot be written
+     */
+    @Override
+    public void add(Title t) throws IOException {
+        write(t, null);
+        titleCount++;
+    }
+
+    /**
+     * Writes a restored title with its restoration date.
+     * 
+     * @param rt the restored title
+     * @throws IOException if the record cannot be written
+     */
+    @Override
+    public void add(RTitle rt) throws IOException {
+        write(rt.getTitle(), rt);
+        restoredCount++;
+    }
+
+    /**
+     * Sets the last journal segment whose changes the snapshot includes, so
+     * recovery only replays the later segments. It is 0 for a snapshot that
+     * does not belong to a journal.
+     * 
+     * @param segment the number of the segment
+     */
+    public void setSegment(int segment) {
+        this.segment = segment;
+    }
+
+    /**
+     * Returns the number of records written so far.
+     * 
+     * @return the number of titles and restored titles written
+     */
+    public long getRecords() {
+        return titleCount + restoredCount;
+    }
+
+    /**
+     * Finishes the snapshot: writes the header counts and segment, forces the file to disk
+     * and renames it over the target.
+     * 
+     * @throws IOException if the snapshot cannot be finished
+     */
+    public void commit() throws IOException {
+        flush();
+        ByteBuffer counts = ByteBuffer.allocate(24);
+        counts.putLong(titleCount).putLong(restoredCount).putLong(segment).flip();
+        while (counts.hasRemaining()) {
+            channel.write(counts, 8 + counts.position());
+        }
+        channel.force(true);
+        channel.close();
+        TitleWriter.replace(temp, target);
+        committed = true;
+    }
+
+    /**
+     * Closes the snapshot, deleting it unless it was committed.
+     * 
+     * @throws IOException if the temporary file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Writes one record
+    private void write(Title t, RTitle rt) throws IOException {
+        byte[] record = RecordCodec.encode(t, rt == null ? null : rt.getDate(), names);
+        reserve(4 + record.length);
+        buffer.putInt(record.length);
+        buffer.put(record);
+    }
+
+    // Makes room in the buffer for a number of bytes
+    private void reserve(int n) throws IOException {
+        if (buffer.remaining() < n) {
+            flush();
+            if (buffer.capacity() < n) {
+                buffer = ByteBuffer.allocateDirect(n);
+            }
+        }
+    }
+
+    // Writes the buffered bytes to the file
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
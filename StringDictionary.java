@@ -0,0 +1,115 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Class StringDictionary to give each distinct string a small int code.
+ * Strings such as publishers and authors repeat across a catalog: a
+ * dictionary keeps a single copy of each and hands out codes from 0 up in
+ * the order the strings are first seen, so records can hold an int instead
+ * of a string and compare codes instead of characters.
+ * A dictionary is not thread-safe; each loader or store uses its own.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class StringDictionary {
+    /**
+     * Code of a null string, and of a string that is not in the dictionary.
+     */
+    public static final int NO_CODE = -1;
+
+    // Data members
+    private HashMap<String, Integer> codes;
+    private String[] strings;
+    private int size;
+
+    /**
+     * Default constructor that creates an empty dictionary.
+     */
+    public StringDictionary() {
+        codes = new HashMap<>();
+        strings = new String[16];
+    }
+
+    /**
+     * Returns the code of a string, adding the string if it is new.
+     * 
+     * @param s the string
+     * @return the code of the string, or NO_CODE if s is null
+     */
+    public int code(String s) {
+        if (s == null) {
+            return NO_CODE;
+        }
+        Integer c = codes.get(s);
+        if (c != null) {
+            return c;
+        }
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, size * 2);
+        }
+        strings[size] = s;
+        codes.put(s, size);
+        return size++;
+    }
+
+    /**
+     * Returns the code of a string without adding it.
+     * 
+     * @param s the string
+     * @return the code of the string, or NO_CODE if it is not in the dictionary
+     */
+    public int find(String s) {
+        Integer c = s == null ? null : codes.get(s);
+        return c == null ? NO_CODE : c;
+    }
+
+    /**
+     * Returns the string with a code.
+     * 
+     * @param code the code
+     * @return the string, or null for NO_CODE
+     */
+    public String get(int code) {
+        if (code == NO_CODE) {
+            return null;
+        }
+        if (code < 0 || code >= size) {
+            throw new IllegalArgumentException("Unknown string code " + code);
+        }
+        return strings[code];
+    }
+
+    /**
+     * Returns the single copy the dictionary keeps of a string, adding it if it is new.
+     * 
+     * @param s the string
+     * @return a string equal to s, shared by every equal string interned here
+     */
+    public String intern(String s) {
+        return get(code(s));
+    }
+
+    /**
+     * Returns the number of strings in the dictionary.
+     * 
+     * @return the number of distinct strings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the dictionary: each
+     * string with its characters, its hash map entry and its slot in the array.
+     * 
+     * @return the approximate size of the dictionary in bytes
+     */
+    public long memoryBytes() {
+        long bytes = (long) strings.length * 4;
+        for (int i = 0; i < size; i++) {
+            bytes += 100 + strings[i].length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,242 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Class TextIndex to index the slots of a catalog by the words of their titles,
+ * publishers and authors.
+ * Words are runs of letters and digits, lowercased. Each word keeps a posting
+ * list of slots in increasing order, stored in plain int arrays, with how many
+ * times the word appears in each title beside it. Slots only ever grow while
+ * titles are added, so adding a title appends to the end of each list.
+ * Like the other indexes, posting lists may still hold slots whose titles were
+ * removed; callers skip those, and the catalog rebuilds the index when it
+ * compacts its slots.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class TextIndex {
+    // Slots of one word and how often the word appears in each of them
+    private static class Postings {
+        private int[] slots = new int[2];
+        private int[] counts = new int[2];
+        private int size;
+
+        private void add(int slot) {
+            if (size > 0 && slots[size - 1] == slot) {
+                counts[size - 1]++;
+                return;
+            }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            slots[size] = slot;
+            counts[size] = 1;
+            size++;
+        }
+    }
+
+    /**
+     * Slots and scores of the titles matching a search, in increasing slot order.
+     */
+    static class Matches {
+        final int[] slots;
+        final int[] scores;
+        final int size;
+
+        Matches(int[] slots, int[] scores, int size) {
+            this.slots = slots;
+            this.scores = scores;
+            this.size = size;
+        }
+    }
+
+    private static final Matches NONE = new Matches(new int[0], new int[0], 0);
+
+    // Data members
+    private HashMap<String, Postings> words;
+
+    /**
+     * Default constructor that creates an empty index.
+     */
+    public TextIndex() {
+        words = new HashMap<>();
+    }
+
+    /**
+     * Splits a text into lowercase words.
+     *
+     * @param text the text, which may be null
+     * @return the words of the text, in order
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds the words of a title to the index. Slots must be added in increasing order.
+     *
+     * @param t the title
+     * @param slot the slot of the title in the catalog
+     */
+    public void add(Title t, int slot) {
+        addWords(t.getTitle(), slot);
+        addWords(t.getPublisher(), slot);
+        if (t instanceof Book) {
+            addWords(((Book) t).getAuthor(), slot);
+        }
+    }
+
+    // Adds the words of one field of a title
+    private void addWords(String text, int slot) {
+        for (String w : tokenize(text)) {
+            Postings p = words.get(w);
+            if (p == null) {
+                p = new Postings();
+                words.put(w, p);
+            }
+            p.add(slot);
+        }
+    }
+
+    /**
+     * Finds the slots holding every word of a text. The score of a slot is
+     * how many times the words appear in it.
+     *
+     * @param text the words to search for
+     * @return the matching slots, in increasing order
+     */
+    Matches all(String text) {
+        List<Postings> lists = postings(text, true);
+        if (lists == null) {
+            return NONE;
+        }
+        // Start from the rarest word so the candidates shrink as fast as possible
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Postings first = lists.get(0);
+        int[] slots = Arrays.copyOf(first.slots, first.size);
+        int[] scores = Arrays.copyOf(first.counts, first.size);
+        int n = first.size;
+        for (int k = 1; k < lists.size() && n > 0; k++) {
+            Postings p = lists.get(k);
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < n; i++) {
+                j = search(p.slots, j, p.size, slots[i]);
+                if (j < p.size && p.slots[j] == slots[i]) {
+                    slots[kept] = slots[i];
+                    scores[kept] = scores[i] + p.counts[j];
+                    kept++;
+                }
+            }
+            n = kept;
+        }
+        return new Matches(slots, scores, n);
+    }
+
+    /**
+     * Finds the slots holding any word of a text. The score of a slot is
+     * how many times the words appear in it.
+     *
+     * @param text the words to search for
+     * @return the matching slots, in increasing order
+     */
+    Matches any(String text) {
+        List<Postings> lists = postings(text, false);
+        if (lists == null || lists.isEmpty()) {
+            return NONE;
+        }
+        int[] slots = new int[0];
+        int[] scores = new int[0];
+        int n = 0;
+        for (Postings p : lists) {
+            // Merge the next list into the union so far
+            int[] s = new int[n + p.size];
+            int[] c = new int[n + p.size];
+            int i = 0;
+            int j = 0;
+            int m = 0;
+            while (i < n || j < p.size) {
+                if (j == p.size || (i < n && slots[i] < p.slots[j])) {
+                    s[m] = slots[i];
+                    c[m] = scores[i];
+                    i++;
+                } else if (i == n || p.slots[j] < slots[i]) {
+                    s[m] = p.slots[j];
+                    c[m] = p.counts[j];
+                    j++;
+                } else {
+                    s[m] = slots[i];
+                    c[m] = scores[i] + p.counts[j];
+                    i++;
+                    j++;
+                }
+                m++;
+            }
+            slots = s;
+            scores = c;
+            n = m;
+        }
+        return new Matches(slots, scores, n);
+    }
+
+    // Returns the postings of the distinct words of a text, or null if a required word is missing
+    private List<Postings> postings(String text, boolean required) {
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        List<Postings> lists = new ArrayList<>();
+        for (String w : tokens) {
+            Postings p = words.get(w);
+            if (p == null) {
+                if (required) {
+                    return null;
+                }
+            } else if (!lists.contains(p)) {
+                lists.add(p);
+            }
+        }
+        return lists;
+    }
+
+    // Returns the first position at or after from whose slot is not below the key
+    private static int search(int[] slots, int from, int to, int key) {
+        // Gallop ahead, then binary search the last step
+        int step = 1;
+        int hi = from;
+        while (hi < to && slots[hi] < key) {
+            from = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        hi = Math.min(hi, to);
+        int i = Arrays.binarySearch(slots, from, hi, key);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Removes every word from the index.
+     */
+    public void clear() {
+        words.clear();
+    }
+}
@@ -9,6 +9,11 @@ import java.time.LocalDate;
  * @since   2024-6-1 (date of last revision) 
  */
 public abstract class Title implements Comparable<Title>, Cloneable, Restorable {
+    /**
+     * Age in years at which a title becomes due for restoration.
+     */
+    public static final int RESTORATION_AGE = 50;
+
     private String callN;
     private String title;
     private String publisher;
@@ -156,6 +161,17 @@ public abstract class Title implements Comparable<Title>, Cloneable, Restorable
      */
     @Override
     public boolean isRestorable() {
-        return LocalDate.now().getYear() - year >= 50;
+        return isRestorable(LocalDate.now().getYear());
+    }
+
+    /**
+     * Determines if the title is restorable in a given year.
+     * Lets callers checking many titles read the clock only once.
+     * 
+     * @param currentYear the year to check against
+     * @return true if the title is restorable, false otherwise
+     */
+    public boolean isRestorable(int currentYear) {
+        return currentYear - year >= RESTORATION_AGE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Class TitleCursor to iterate lazily over the results of a catalog query.
+ * The cursor walks the index posting lists of the query one slot at a time,
+ * so asking for the first few results of a large query only touches those
+ * results. skip and limit page through the results without building them.
+ * Titles removed after the cursor was created are skipped and titles added
+ * after it are not returned; sorting or compacting the catalog while a cursor
+ * is open makes the cursor throw ConcurrentModificationException.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class TitleCursor implements Iterator<Title> {
+    // Data members
+    private final Catalog catalog;
+    private final IntList[] postings;
+    private final int[] sizes;
+    private final int epoch;
+    private int list;
+    private int position;
+    private int offset;
+    private int limit;
+    private int returned;
+    private boolean started;
+    private Title next;
+
+    /**
+     * Constructor used by the Catalog query methods
+     * @param catalog the catalog the slots belong to
+     * @param postings the posting lists of the query, in result order
+     * @param epoch the catalog epoch the slots are valid for
+     */
+    TitleCursor(Catalog catalog, Collection<IntList> postings, int epoch) {
+        this.catalog = catalog;
+        this.postings = postings.toArray(new IntList[0]);
+        this.epoch = epoch;
+        // Titles added after the query are not part of it
+        sizes = new int[this.postings.length];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = this.postings[i].size();
+        }
+        limit = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Skips the first results of the query.
+     * 
+     * @param n the number of results to skip
+     * @return this cursor
+     */
+    public TitleCursor skip(int n) {
+        checkNotStarted();
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative offset: " + n);
+        }
+        offset = n;
+        return this;
+    }
+
+    /**
+     * Stops the cursor after a number of results.
+     * 
+     * @param n the largest number of results to return
+     * @return this cursor
+     */
+    public TitleCursor limit(int n) {
+        checkNotStarted();
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative limit: " + n);
+        }
+        limit = n;
+        return this;
+    }
+
+    /**
+     * Checks if the cursor has another result.
+     * 
+     * @return true if next will return a title, false otherwise
+     */
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < offset && advance() != null; i++) {
+                // Skipped results are found but not returned
+            }
+        }
+        if (next == null && returned < limit) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    /**
+     * Returns the next result.
+     * 
+     * @return the next title
+     */
+    @Override
+    public Title next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Title t = next;
+        next = null;
+        returned++;
+        return t;
+    }
+
+    /**
+     * Returns the remaining results as an array.
+     * 
+     * @return an array of the remaining results, which is empty if there are none
+     */
+    public Title[] toArray() {
+        List<Title> results = new ArrayList<>();
+        while (hasNext()) {
+            results.add(next());
+        }
+        return results.toArray(new Title[0]);
+    }
+
+    // Returns the next title still in the catalog, or null at the end of the postings
+    private Title advance() {
+        while (list < postings.length) {
+            if (position < sizes[list]) {
+                Title t = catalog.cursorTitle(postings[list], position, epoch);
+                position++;
+                if (t != null) {
+                    return t;
+                }
+            } else {
+                list++;
+                position = 0;
+            }
+        }
+        return null;
+    }
+
+    // Makes sure skip and limit are set before the first result
+    private void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("Cursor already started");
+        }
+    }
+}
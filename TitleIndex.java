@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class TitleIndex to index the slots of a catalog by title.
+ * A hash map answers exact lookups and a sorted map over the same
+ * posting lists answers prefix lookups.
+ * Posting lists keep slots in the order they were added, and may still hold
+ * slots whose titles were removed; callers skip those.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class TitleIndex {
+    // Data members
+    private HashMap<String, IntList> exact;
+    private TreeMap<String, IntList> sorted;
+
+    /**
+     * Default constructor that creates an empty index.
+     */
+    public TitleIndex() {
+        exact = new HashMap<>();
+        sorted = new TreeMap<>();
+    }
+
+    /**
+     * Adds the slot of a title to the index.
+     * 
+     * @param title the title name
+     * @param slot the slot of the title in the catalog
+     */
+    public void add(String title, int slot) {
+        IntList slots = exact.get(title);
+        if (slots == null) {
+            slots = new IntList();
+            exact.put(title, slots);
+            sorted.put(title, slots);
+        }
+        slots.add(slot);
+    }
+
+    /**
+     * Returns the slots of the titles with a given name.
+     * 
+     * @param title the title name
+     * @return the slots of the title, or null if the title is not indexed
+     */
+    public IntList get(String title) {
+        return exact.get(title);
+    }
+
+    /**
+     * Returns the posting lists of every title starting with a prefix,
+     * in alphabetical order of the titles.
+     * 
+     * @param prefix the prefix to look for
+     * @return the posting lists of the matching titles
+     */
+    public List<IntList> prefix(String prefix) {
+        List<IntList> matches = new ArrayList<>();
+        // Stop at the first title past the prefix instead of walking the whole tail
+        for (Map.Entry<String, IntList> e : sorted.tailMap(prefix, true).entrySet()) {
+            if (!e.getKey().startsWith(prefix)) {
+                break;
+            }
+            matches.add(e.getValue());
+        }
+        return matches;
+    }
+
+    /**
+     * Removes every title from the index.
+     */
+    public void clear() {
+        exact.clear();
+        sorted.clear();
+    }
+}
@@ -0,0 +1,298 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class TitleLoader to stream a titles file into a Catalog.
+ * The file is read through a large buffer one line at a time and each line
+ * is handed to a TitleParser, so memory use does not depend on the file size.
+ * Lines that cannot be parsed are reported and skipped.
+ * Large files can also be split at line boundaries and parsed in parallel
+ * on a fork/join pool; the titles still reach the catalog in file order.
+ * Publishers and authors are interned through a StringDictionary, so the
+ * titles of a file share one copy of each instead of one per line.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class TitleLoader {
+    // Size of the read buffer in chars
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Smallest and largest number of bytes parsed by one parallel task
+    private static final int MIN_CHUNK = 1 << 20;
+    private static final int MAX_CHUNK = 1 << 24;
+
+    // Data members
+    private final Catalog catalog;
+    private long lines;
+    private long errors;
+    private long nanos;
+
+    /**
+     * Constructor with one parameter
+     * @param catalog the catalog to load the titles into
+     */
+    public TitleLoader(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Reads every line of a titles file into the catalog.
+     * Restored titles go to the catalog's restored titles.
+     * 
+     * @param filename the name of the file to read
+     * @return the number of lines read
+     * @throws IOException if the file cannot be read
+     */
+    public long load(String filename) throws IOException {
+        long start = System.nanoTime();
+        lines = 0;
+        errors = 0;
+        TitleParser parser = new TitleParser(new StringDictionary());
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(Files.newInputStream(Paths.get(filename)), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String s;
+            while ((s = in.readLine()) != null) {
+                lines++;
+                if (s.isEmpty()) {
+                    continue;
+                }
+                try {
+                    parser.parse(s, lines);
+                    if (parser.getRestorationDate() != null) {
+                        catalog.addRestoredTitle(new RTitle(parser.getTitle(), parser.getRestorationDate()));
+                    } else {
+                        catalog.addTitle(parser.getTitle());
+                    }
+                } catch (InvalidTitleRecord e) {
+                    errors++;
+                    System.out.println(e.getMessage());
+                }
+            }
+        } finally {
+            nanos = System.nanoTime() - start;
+        }
+        return lines;
+    }
+
+    /**
+     * Reads every line of a titles file into the catalog, parsing the file in
+     * chunks on the common fork/join pool.
+     * Titles, restored titles and error messages come out in the same order
+     * and with the same line numbers as with load.
+     * 
+     * @param filename the name of the file to read
+     * @return the number of lines read
+     * @throws IOException if the file cannot be read
+     */
+    public long loadParallel(String filename) throws IOException {
+        return loadParallel(filename, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads every line of a titles file into the catalog, parsing the file in
+     * chunks on a given fork/join pool.
+     * 
+     * @param filename the name of the file to read
+     * @param pool the pool that parses the chunks
+     * @return the number of lines read
+     * @throws IOException if the file cannot be read
+     */
+    public long loadParallel(String filename, ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        lines = 0;
+        errors = 0;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, pool.getParallelism());
+            List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                tasks.add(pool.submit(new ChunkTask(channel, bounds[i], bounds[i + 1])));
+            }
+            // Merge in file order so the catalog matches a sequential load
+            for (ForkJoinTask<Chunk> task : tasks) {
+                Chunk chunk;
+                try {
+                    chunk = task.join();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                catalog.addTitles(chunk.titles);
+                for (RTitle rt : chunk.restored) {
+                    catalog.addRestoredTitle(rt);
+                }
+                for (InvalidTitleRecord e : chunk.errors) {
+                    errors++;
+                    System.out.println(new InvalidTitleRecord(lines + e.getLine(), e.getDetail()).getMessage());
+                }
+                lines += chunk.lines;
+            }
+        } finally {
+            nanos = System.nanoTime() - start;
+        }
+        return lines;
+    }
+
+    // Splits a file into chunks that start right after a line end
+    private static long[] chunkBounds(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long target = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, size / (4L * Math.max(parallelism, 1))));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = 0;
+        while (size - position > target) {
+            long p = position + target;
+            long next = -1;
+            // Look for the next line end after the nominal split point
+            while (next < 0 && p < size) {
+                probe.clear();
+                int n = channel.read(probe, p);
+                for (int i = 0; i < n; i++) {
+                    byte b = probe.get(i);
+                    if (b == '\n' || b == '\r') {
+                        next = p + i + 1;
+                        // Never split a \r\n pair, which would count an extra empty line
+                        if (b == '\r' && next < size && byteAt(channel, next) == '\n') {
+                            next++;
+                        }
+                        break;
+                    }
+                }
+                p += Math.max(n, 1);
+            }
+            if (next < 0 || next >= size) {
+                break;
+            }
+            bounds.add(next);
+            position = next;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    // Reads the byte at a file position
+    private static byte byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        channel.read(one, position);
+        return one.get(0);
+    }
+
+    // Titles parsed from one chunk, with line numbers relative to the chunk
+    private static class Chunk {
+        private final List<Title> titles = new ArrayList<>();
+        private final List<RTitle> restored = new ArrayList<>();
+        private final List<InvalidTitleRecord> errors = new ArrayList<>();
+        private long lines;
+    }
+
+    // Task that reads and parses the lines between two file positions
+    private static class ChunkTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+        private final transient FileChannel channel;
+        private final long from;
+        private final long to;
+
+        ChunkTask(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Chunk compute() {
+            byte[] bytes = new byte[(int) (to - from)];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, from + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Chunk chunk = new Chunk();
+            // One dictionary per chunk, so chunks intern without sharing state
+            TitleParser parser = new TitleParser(new StringDictionary());
+            int length = buffer.position();
+            int start = 0;
+            while (start < length) {
+                // Lines end at \n, \r or \r\n, as with BufferedReader.readLine
+                int end = start;
+                while (end < length && bytes[end] != '\n' && bytes[end] != '\r') {
+                    end++;
+                }
+                int next = end + 1;
+                if (end + 1 < length && bytes[end] == '\r' && bytes[end + 1] == '\n') {
+                    next++;
+                }
+                chunk.lines++;
+                if (end > start) {
+                    try {
+                        parser.parse(new String(bytes, start, end - start, StandardCharsets.UTF_8), chunk.lines);
+                        if (parser.getRestorationDate() != null) {
+                            chunk.restored.add(new RTitle(parser.getTitle(), parser.getRestorationDate()));
+                        } else {
+                            chunk.titles.add(parser.getTitle());
+                        }
+                    } catch (InvalidTitleRecord e) {
+                        chunk.errors.add(e);
+                    }
+                }
+                start = next;
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * Returns the number of lines read by the last load.
+     * 
+     * @return the number of lines read
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns the number of lines skipped because they could not be parsed.
+     * 
+     * @return the number of invalid lines
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the load speed of the last load.
+     * 
+     * @return the number of lines read per second
+     */
+    public double getLinesPerSecond() {
+        return nanos == 0 ? 0 : lines * 1e9 / nanos;
+    }
+
+    /**
+     * Returns a summary of the last load.
+     * 
+     * @return the number of lines, errors, time and speed of the last load
+     */
+    public String toString() {
+        return String.format("%d lines (%d invalid) in %.1f ms, %.0f lines/s", lines, errors, nanos / 1e6, getLinesPerSecond());
+    }
+}
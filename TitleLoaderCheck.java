@@ -0,0 +1,92 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Class TitleLoaderCheck to check that readTitles and readTitlesParallel read
+ * a titles file the same way whatever its line ends are.
+ * It generates a file large enough to be split into several chunks, with a
+ * blank line and an invalid line in it, and writes it once with \n, once with
+ * \r\n and once with a lone \r after each line. Each file is read with both
+ * loaders, which must find the same titles, restored titles, line count and
+ * error messages (with their line numbers) as the \n file read sequentially.
+ * Usage: java TitleLoaderCheck [titles]
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class TitleLoaderCheck {
+    private static final long SEED = 42;
+    private static final String[] LINE_ENDS = {"\n", "\r\n", "\r"};
+    private static final String[] NAMES = {"LF", "CRLF", "CR"};
+
+    /**
+     * Main method to run the check.
+     *
+     * @param args the number of titles to generate, 60000 by default
+     * @throws IOException if the temporary files cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 60_000;
+        Path source = Files.createTempFile("title-loader-check", ".txt");
+        Path file = Files.createTempFile("title-loader-check", ".txt");
+        boolean ok = true;
+        try {
+            new CatalogGenerator(SEED).writeText(source.toString(), n);
+            String[] lines = new String(Files.readAllBytes(source), StandardCharsets.UTF_8).split("\n");
+            // A blank line and an invalid line, so line numbers must line up too
+            lines[lines.length / 3] = "";
+            lines[2 * lines.length / 3] = "not a title";
+            String expected = null;
+            for (int e = 0; e < LINE_ENDS.length; e++) {
+                Files.write(file, (String.join(LINE_ENDS[e], lines) + LINE_ENDS[e]).getBytes(StandardCharsets.UTF_8));
+                for (boolean parallel : new boolean[] {false, true}) {
+                    String result = load(file, parallel ? Catalog::readTitlesParallel : Catalog::readTitles);
+                    if (expected == null) {
+                        expected = result;
+                    }
+                    boolean same = result.equals(expected);
+                    System.out.printf("%-4s %-10s %s%n", NAMES[e], parallel ? "parallel" : "sequential",
+                            same ? "match" : "DIFFER");
+                    ok &= same;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(file);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // Loads a file into a new catalog and returns what it printed, its counts and its titles
+    private static String load(Path file, Loader loader) {
+        Catalog catalog = new Catalog();
+        String printed = quietly(() -> loader.load(catalog, file.toString()));
+        TitleLoader stats = catalog.getLastLoadStats();
+        return printed + stats.getLines() + " lines, " + stats.getErrors() + " invalid\n"
+                + catalog + quietly(catalog::viewRestored);
+    }
+
+    // A way to read a file into a catalog
+    private interface Loader {
+        void load(Catalog catalog, String filename);
+    }
+
+    // Runs an action that prints, and returns what it printed
+    private static String quietly(Runnable action) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+            action.run();
+        } finally {
+            System.setOut(out);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
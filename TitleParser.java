@@ -0,0 +1,150 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Class TitleParser to parse lines of a titles file.
+ * A line has the form callN|title|publisher|year|copies|author|ISBN for a book,
+ * or callN|title|publisher|year|copies|month|issue for a periodical, optionally
+ * followed by |restorationDate.
+ * The parser finds the fields in a single pass and parses numbers in place,
+ * without splitting the line into an array of substrings.
+ * A parser given a StringDictionary shares one copy of each publisher and
+ * author among the titles it parses.
+ * A parser keeps the result of the last line, so each thread needs its own.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class TitleParser {
+    // Number of fields of a title, and of a restored title
+    private static final int FIELDS = 7;
+    private static final int RESTORED_FIELDS = 8;
+
+    // Data members
+    private final int[] starts;
+    private final int[] ends;
+    private final StringDictionary names;
+    private Title title;
+    private LocalDate restorationDate;
+
+    /**
+     * Default constructor
+     */
+    public TitleParser() {
+        this(null);
+    }
+
+    /**
+     * Constructor with a dictionary for publishers and authors
+     * @param names the dictionary that interns publishers and authors, or null
+     */
+    public TitleParser(StringDictionary names) {
+        starts = new int[RESTORED_FIELDS];
+        ends = new int[RESTORED_FIELDS];
+        this.names = names;
+    }
+
+    /**
+     * Parses a line into a Title and, if present, its restoration date.
+     * 
+     * @param s the line to parse
+     * @param line the number of the line, used in error messages
+     * @throws InvalidTitleRecord if the line is not a valid title record
+     */
+    public void parse(String s, long line) throws InvalidTitleRecord {
+        int n = split(s, line);
+        if (n < FIELDS) {
+            throw new InvalidTitleRecord(line, "expected " + FIELDS + " or " + RESTORED_FIELDS + " fields but found " + n);
+        }
+        String callN = field(s, 0);
+        if (callN.isEmpty()) {
+            throw new InvalidTitleRecord(line, "missing call number");
+        }
+        int year = parseInt(s, 3, line);
+        int copies = parseInt(s, 4, line);
+        if (callN.charAt(0) == 'P') {
+            int month = MonthCodec.decode(s, starts[5], ends[5]);
+            title = new Periodical(callN, field(s, 1), name(s, 2), year, copies, month, parseInt(s, 6, line));
+        } else {
+            title = new Book(callN, field(s, 1), name(s, 2), year, copies, name(s, 5), field(s, 6));
+        }
+        restorationDate = null;
+        if (n == RESTORED_FIELDS) {
+            try {
+                restorationDate = LocalDate.parse(field(s, 7));
+            } catch (DateTimeParseException e) {
+                throw new InvalidTitleRecord(line, "invalid restoration date " + field(s, 7));
+            }
+        }
+    }
+
+    /**
+     * Returns the Title of the last parsed line.
+     * 
+     * @return the parsed Title
+     */
+    public Title getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the restoration date of the last parsed line.
+     * 
+     * @return the restoration date, or null if the title has not been restored
+     */
+    public LocalDate getRestorationDate() {
+        return restorationDate;
+    }
+
+    // Records where each field of the line starts and ends
+    private int split(String s, long line) throws InvalidTitleRecord {
+        int n = 0;
+        int start = 0;
+        int length = s.length();
+        for (int i = 0; i <= length; i++) {
+            if (i == length || s.charAt(i) == '|') {
+                if (n == RESTORED_FIELDS) {
+                    throw new InvalidTitleRecord(line, "more than " + RESTORED_FIELDS + " fields");
+                }
+                starts[n] = start;
+                ends[n] = i;
+                n++;
+                start = i + 1;
+            }
+        }
+        return n;
+    }
+
+    // Returns a field as a string
+    private String field(String s, int f) {
+        return s.substring(starts[f], ends[f]);
+    }
+
+    // Returns a field that repeats across titles, interned if there is a dictionary
+    private String name(String s, int f) {
+        return names == null ? field(s, f) : names.intern(field(s, f));
+    }
+
+    // Parses a field as a non-negative int without creating a substring
+    private int parseInt(String s, int f, long line) throws InvalidTitleRecord {
+        int start = starts[f];
+        int end = ends[f];
+        if (start == end || end - start > 9) {
+            throw new InvalidTitleRecord(line, "invalid number in field " + (f + 1));
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                throw new InvalidTitleRecord(line, "invalid number " + field(s, f));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Checks if a character is an ASCII digit
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
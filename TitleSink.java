@@ -0,0 +1,27 @@
+import java.io.IOException;
+
+/**
+ * Interface TitleSink to receive the titles of a catalog one at a time.
+ * Catalog.export feeds every title to a sink, so savers in different
+ * formats share one walk over the catalog.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public interface TitleSink {
+    /**
+     * Receives a title that has not been restored.
+     * 
+     * @param t the title
+     * @throws IOException if the sink cannot store the title
+     */
+    void add(Title t) throws IOException;
+
+    /**
+     * Receives a restored title.
+     * 
+     * @param rt the restored title
+     * @throws IOException if the sink cannot store the title
+     */
+    void add(RTitle rt) throws IOException;
+}
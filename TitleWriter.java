@@ -0,0 +1,190 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Class TitleWriter to save a Catalog to a titles file without risking the old file.
+ * The titles are streamed through a large buffer into a temporary file next to
+ * the target, which is forced to disk and then renamed over the target in one
+ * step. A crash part way through leaves the previous file untouched.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class TitleWriter {
+    // Size of the write buffer in chars
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // Data members
+    private final Catalog catalog;
+    private long records;
+    private long bytes;
+    private long nanos;
+
+    /**
+     * Constructor with one parameter
+     * @param catalog the catalog to save
+     */
+    public TitleWriter(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Saves the titles and restored titles of the catalog to a file.
+     * 
+     * @param filename the name of the file to save the titles to
+     * @return the number of records written
+     * @throws IOException if the file cannot be written; the old file is then left as it was
+     */
+    public long save(String filename) throws IOException {
+        long start = System.nanoTime();
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temp = createTemp(target);
+        boolean done = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), BUFFER_SIZE);
+                String newLine = System.lineSeparator();
+                records = catalog.export(new TitleSink() {
+                    public void add(Title t) throws IOException {
+                        out.write(t.simpleToString());
+                        out.write(newLine);
+                    }
+
+                    public void add(RTitle rt) throws IOException {
+                        out.write(rt.simpleToString());
+                        out.write(newLine);
+                    }
+                });
+                out.flush();
+                channel.force(true);
+                bytes = channel.size();
+            }
+            replace(temp, target);
+            done = true;
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(temp);
+            }
+            nanos = System.nanoTime() - start;
+        }
+        return records;
+    }
+
+    /**
+     * Creates an empty temporary file next to a target. Unlike
+     * Files.createTempFile, which makes the file readable by its owner only,
+     * the file gets the default permissions of new files, so a new target
+     * gets the same permissions as any other file the user creates.
+     * 
+     * @param target the file the temporary file will replace
+     * @return the new temporary file
+     * @throws IOException if the file cannot be created
+     */
+    static Path createTemp(Path target) throws IOException {
+        String prefix = target.getFileName().toString();
+        while (true) {
+            Path temp = target.resolveSibling(prefix + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // Another file has that name; try another one
+            }
+        }
+    }
+
+    // Gives the temporary file the permissions of the file it replaces
+    private static void keepPermissions(Path target, Path temp) throws IOException {
+        if (Files.exists(target)) {
+            try {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system
+            }
+        }
+    }
+
+    /**
+     * Renames a file that is already on disk over a target, atomically when
+     * the file system allows it, and forces the rename to disk.
+     * 
+     * @param temp the file to rename
+     * @param target the file to replace
+     * @throws IOException if the file cannot be renamed
+     */
+    static void replace(Path temp, Path target) throws IOException {
+        keepPermissions(target, temp);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.getParent());
+    }
+
+    // Forces the rename to disk; not every platform can open a directory, so failures are ignored
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The file itself is already on disk
+        }
+    }
+
+    /**
+     * Returns the number of records written by the last save.
+     * 
+     * @return the number of records written
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the size of the file written by the last save.
+     * 
+     * @return the number of bytes written
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the record speed of the last save.
+     * 
+     * @return the number of records written per second
+     */
+    public double getRecordsPerSecond() {
+        return nanos == 0 ? 0 : records * 1e9 / nanos;
+    }
+
+    /**
+     * Returns the byte speed of the last save.
+     * 
+     * @return the number of bytes written per second
+     */
+    public double getBytesPerSecond() {
+        return nanos == 0 ? 0 : bytes * 1e9 / nanos;
+    }
+
+    /**
+     * Returns a summary of the last save.
+     * 
+     * @return the number of records and bytes, time and speed of the last save
+     */
+    public String toString() {
+        return String.format("%d records (%d bytes) in %.1f ms, %.0f records/s, %.1f MB/s", records, bytes, nanos / 1e6, getRecordsPerSecond(), getBytesPerSecond() / (1 << 20));
+    }
+}
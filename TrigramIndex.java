@@ -0,0 +1,199 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Class TrigramIndex to find the titles whose name is close to a misspelled one.
+ * Every distinct title name is split into its lowercase trigrams, padded with
+ * two spaces on each side, and each trigram keeps the list of names holding it.
+ * A search only checks the edit distance of names sharing enough trigrams
+ * with the query: one edit changes at most three trigrams, so a name within
+ * d edits of the query still holds all but 3 * d of the query trigrams.
+ * @author  Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision)
+ */
+public class TrigramIndex {
+    // Shared-trigram counts of the current search, all zero between searches
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[0]);
+
+    // Data members
+    private List<String> names;
+    private List<String> folded;
+    private HashMap<String, Integer> ids;
+    // Trigram, packed into a long, to its position in postings
+    private LongIntMap trigrams;
+    private List<IntList> postings;
+
+    /**
+     * Default constructor that creates an empty index.
+     */
+    public TrigramIndex() {
+        names = new ArrayList<>();
+        folded = new ArrayList<>();
+        ids = new HashMap<>();
+        trigrams = new LongIntMap();
+        postings = new ArrayList<>();
+    }
+
+    /**
+     * Adds a title name to the index, unless it is already there.
+     *
+     * @param name the title name
+     */
+    public void add(String name) {
+        if (name == null || ids.containsKey(name)) {
+            return;
+        }
+        int id = names.size();
+        String f = name.toLowerCase(Locale.ROOT);
+        names.add(name);
+        folded.add(f);
+        ids.put(name, id);
+        for (long g : distinctTrigrams(f)) {
+            int p = trigrams.get(g);
+            if (p == LongIntMap.NO_VALUE) {
+                p = postings.size();
+                trigrams.put(g, p);
+                postings.add(new IntList());
+            }
+            postings.get(p).add(id);
+        }
+    }
+
+    /**
+     * Finds the names within an edit distance of a query, ignoring case.
+     * The closest names come first, then names in alphabetical order.
+     *
+     * @param query the name to look for
+     * @param maxDistance the largest number of edits allowed
+     * @return the matching names
+     */
+    public List<String> search(String query, int maxDistance) {
+        String q = query.toLowerCase(Locale.ROOT);
+        long[] grams = distinctTrigrams(q);
+        int needed = grams.length - 3 * maxDistance;
+        // Count the query trigrams each name shares, in a per-thread array
+        // so a search does not allocate one counter per name
+        int[] shared = SCRATCH.get();
+        if (shared.length < names.size()) {
+            shared = new int[Math.max(names.size(), 2 * shared.length)];
+            SCRATCH.set(shared);
+        }
+        IntList counted = new IntList();
+        List<long[]> hits = new ArrayList<>();
+        try {
+            for (long g : grams) {
+                int p = trigrams.get(g);
+                if (p == LongIntMap.NO_VALUE) {
+                    continue;
+                }
+                IntList l = postings.get(p);
+                for (int i = 0; i < l.size(); i++) {
+                    int id = l.get(i);
+                    if (shared[id]++ == 0) {
+                        counted.add(id);
+                    }
+                }
+            }
+            IntList touched = counted;
+            // Too few shared trigrams means every name is a candidate, which the lemma cannot prune
+            if (needed <= 0) {
+                touched = new IntList(names.size());
+                for (int id = 0; id < names.size(); id++) {
+                    touched.add(id);
+                }
+            }
+            for (int i = 0; i < touched.size(); i++) {
+                int id = touched.get(i);
+                if (shared[id] < needed) {
+                    continue;
+                }
+                String f = folded.get(id);
+                if (Math.abs(f.length() - q.length()) > maxDistance) {
+                    continue;
+                }
+                int d = distance(q, f, maxDistance);
+                if (d <= maxDistance) {
+                    hits.add(new long[] {d, id});
+                }
+            }
+        } finally {
+            // Zero only the counters this search touched
+            for (int i = 0; i < counted.size(); i++) {
+                shared[counted.get(i)] = 0;
+            }
+        }
+        hits.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+                : names.get((int) a[1]).compareTo(names.get((int) b[1])));
+        List<String> result = new ArrayList<>(hits.size());
+        for (long[] h : hits) {
+            result.add(names.get((int) h[1]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Levenshtein distance between two strings, or any value above
+     * the bound as soon as the distance is known to exceed it.
+     *
+     * @param a the first string
+     * @param b the second string
+     * @param bound the largest distance of interest
+     * @return the edit distance, or a value above bound
+     */
+    static int distance(String a, String b, int bound) {
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int best = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                best = Math.min(best, cur[j]);
+            }
+            // Every later row is at least the smallest value of this one
+            if (best > bound) {
+                return bound + 1;
+            }
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[b.length()];
+    }
+
+    // Returns the distinct trigrams of a lowercase string, packed into longs
+    private static long[] distinctTrigrams(String s) {
+        String p = "  " + s + "  ";
+        long[] grams = new long[p.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) p.charAt(i) << 32) | ((long) p.charAt(i + 1) << 16) | p.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int n = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (n == 0 || grams[n - 1] != grams[i]) {
+                grams[n++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    /**
+     * Removes every name from the index.
+     */
+    public void clear() {
+        names.clear();
+        folded.clear();
+        ids.clear();
+        trigrams.clear();
+        postings.clear();
+    }
+}
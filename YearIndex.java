@@ -0,0 +1,70 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeMap;
+
+/**
+ * Class YearIndex to index the slots of a catalog by publication year.
+ * Each year has its own bucket of slots, and the buckets are kept sorted
+ * by year so ranges of years can be read without a scan.
+ * Buckets may still hold slots whose titles were removed; callers skip those.
+ * @author  Yinglong Lin    
+ * @version Java 11 / VSCode
+ * @since   2024-6-1 (date of last revision) 
+ */
+public class YearIndex {
+    // Data members
+    private TreeMap<Integer, IntList> buckets;
+
+    /**
+     * Default constructor that creates an empty index.
+     */
+    public YearIndex() {
+        buckets = new TreeMap<>();
+    }
+
+    /**
+     * Adds the slot of a title to the bucket of its year.
+     * 
+     * @param year the publication year of the title
+     * @param slot the slot of the title in the catalog
+     */
+    public void add(int year, int slot) {
+        IntList slots = buckets.get(year);
+        if (slots == null) {
+            slots = new IntList();
+            buckets.put(year, slots);
+        }
+        slots.add(slot);
+    }
+
+    /**
+     * Returns the slots of the titles published in a year.
+     * 
+     * @param year the publication year
+     * @return the slots of the year, or null if no title has that year
+     */
+    public IntList get(int year) {
+        return buckets.get(year);
+    }
+
+    /**
+     * Returns the buckets of the years in a range, in increasing year order.
+     * 
+     * @param from the first year of the range
+     * @param to the last year of the range
+     * @return the buckets of the years from "from" to "to", both included
+     */
+    public Collection<IntList> range(int from, int to) {
+        if (from > to) {
+            return Collections.emptyList();
+        }
+        return buckets.subMap(from, true, to, true).values();
+    }
+
+    /**
+     * Removes every year from the index.
+     */
+    public void clear() {
+        buckets.clear();
+    }
+}